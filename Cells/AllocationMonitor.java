@@ -0,0 +1,120 @@
+//ALLOCATIONMONITOR.JAVA
+
+package Cells;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Allocation and garbage collection pressure, sampled once per tick by the simulation thread.
+ * Bytes allocated come from the JVM's per-thread counters (HotSpot's com.sun.management.ThreadMXBean),
+ * collections from the GarbageCollectorMXBeans. The last tick's numbers feed the metrics stream;
+ * one-second rates feed the UI. The Profiler uses threadAllocatedBytes to attribute allocation per phase.
+ */
+public class AllocationMonitor {
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+    
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    
+    // Counters at the previous sample, -1 before the first
+    private long lastBytes = -1;
+    private long lastCollections;
+    private long lastCollectionMillis;
+    
+    // Last sampled tick (simulation thread)
+    private long tickBytes;
+    private long tickCollections;
+    private long tickCollectionMillis;
+    
+    // Current window (simulation thread) and the rates of the last complete one (any thread)
+    private long windowStart;
+    private long windowBytes;
+    private long windowCollections;
+    private long windowCollectionMillis;
+    private int windowTicks;
+    private volatile double bytesPerSecond;
+    private volatile double bytesPerTick;
+    private volatile double collectionsPerSecond;
+    private volatile double collectionMillisPerSecond;
+    
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported()) {
+                counter.setThreadAllocatedMemoryEnabled(true);
+                return counter;
+            }
+        }
+        System.out.println("Allocation counters not supported by this JVM, allocation shows as 0");
+        return null;
+    }
+    
+    /**
+     * Total bytes the calling thread has allocated so far, or 0 where the JVM cannot tell.
+     */
+    public static long threadAllocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+    
+    /**
+     * Take the counters at the end of a tick. Call from the simulation thread once per tick.
+     */
+    public void sampleTick() {
+        long bytes = threadAllocatedBytes();
+        long collections = 0;
+        long collectionMillis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            collections += Math.max(0, collector.getCollectionCount());
+            collectionMillis += Math.max(0, collector.getCollectionTime());
+        }
+        
+        long now = System.nanoTime();
+        if (lastBytes < 0) {
+            windowStart = now;
+        } else {
+            tickBytes = bytes - lastBytes;
+            tickCollections = collections - lastCollections;
+            tickCollectionMillis = collectionMillis - lastCollectionMillis;
+            
+            windowBytes += tickBytes;
+            windowCollections += tickCollections;
+            windowCollectionMillis += tickCollectionMillis;
+            windowTicks++;
+        }
+        lastBytes = bytes;
+        lastCollections = collections;
+        lastCollectionMillis = collectionMillis;
+        
+        long elapsed = now - windowStart;
+        if (elapsed >= WINDOW_NANOS) {
+            double seconds = elapsed / 1e9;
+            bytesPerSecond = windowBytes / seconds;
+            bytesPerTick = windowTicks > 0 ? (double) windowBytes / windowTicks : 0;
+            collectionsPerSecond = windowCollections / seconds;
+            collectionMillisPerSecond = windowCollectionMillis / seconds;
+            
+            windowStart = now;
+            windowBytes = 0;
+            windowCollections = 0;
+            windowCollectionMillis = 0;
+            windowTicks = 0;
+        }
+    }
+    
+    // Last tick, for the metrics stream (simulation thread)
+    public long getTickBytes() { return tickBytes; }
+    public long getTickCollections() { return tickCollections; }
+    public long getTickCollectionMillis() { return tickCollectionMillis; }
+    
+    // Last one-second window, for the UI (any thread)
+    public double getBytesPerSecond() { return bytesPerSecond; }
+    public double getBytesPerTick() { return bytesPerTick; }
+    public double getCollectionsPerSecond() { return collectionsPerSecond; }
+    public double getCollectionMillisPerSecond() { return collectionMillisPerSecond; }
+    public boolean isSupported() { return THREADS != null; }
+}
@@ -3,7 +3,9 @@
 package Cells;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Cell with discrete food type preferences.
@@ -32,25 +34,70 @@ public class Cell extends PhysicsObj {
     private int updateSkipCounter = 0;
     private static final int UPDATE_SKIP_FREQUENCY = 3;
     
-    private Vector2D cachedMoveDirection = new Vector2D(0, 0);
+    private static final Vector2D ZERO_DIRECTION = new Vector2D(0, 0);
+    private static final Color DEAD_MATTER_COLOR = new Color(120, 120, 120);
+    
+    private Vector2D cachedMoveDirection = ZERO_DIRECTION;
     
     // Predator traits
     private boolean isPredator = false;
     private double predatorEfficiency = 0.3;
     
+    // Bucket this cell is filed under in the world's CellSizeIndex (-1 = not indexed)
+    int indexedHash = -1;
+    int indexedSizeClass = -1;
+    
     public Cell(double x, double y, ChemicalSignature preference) {
+        this(SimulationWorld.getInstance(), x, y, preference);
+    }
+    
+    /**
+     * Create a cell for the given world, drawing its random traits from that world's RNG.
+     */
+    public Cell(SimulationWorld world, double x, double y, ChemicalSignature preference) {
         super(x, y);
+        this.world = world;
+        
+        // Dummy gradient source
+        this.cellGradientSource = new GradientSource(x, y, 10.0, this, preference);
+        
+        initializeTraits();
+    }
+    
+    /**
+     * Reset this cell to a freshly constructed state for reuse from the EntityPool.
+     * The gradient source keeps its chemistry object, refilled with a random preference.
+     */
+    public void reinit(double x, double y) {
+        resetPhysics(x, y);
+        
+        ChemicalSignature preference = cellGradientSource.chemistry;
+        preference.fillRandom(world().getRandom());
+        cellGradientSource.reset(x, y, 10.0, this, preference);
+        
+        initializeTraits();
+    }
+    
+    private void initializeTraits() {
+        Random random = world().getRandom();
         this.dampingFactor = 0.96;
         
-        this.movementForce = 5.0 + Math.random() * 5.0;
-        this.senseRange = 100.0 + Math.random() * 100.0;
-        this.eatingDistance = 0.8 + Math.random() * 0.4; // 0.8-1.2
-        this.maxSpeed = 100.0 + Math.random() * 100.0;
-        this.evolveRate = Math.max(Math.random() * 8, 0.5);
+        this.movementForce = 5.0 + random.nextDouble() * 5.0;
+        this.senseRange = 100.0 + random.nextDouble() * 100.0;
+        this.eatingDistance = 0.8 + random.nextDouble() * 0.4; // 0.8-1.2
+        this.maxSpeed = 100.0 + random.nextDouble() * 100.0;
+        this.evolveRate = Math.max(random.nextDouble() * 8, 0.5);
         this.reproductionThreshold = 250;
         
         this.energy = 150.0;
         this.age = 0;
+        this.lastAte = 0;
+        
+        this.isPredator = false;
+        this.predatorEfficiency = 0.3;
+        this.cachedMoveDirection = ZERO_DIRECTION;
+        this.indexedHash = -1;
+        this.indexedSizeClass = -1;
         
         // Random starting specialization
         randomizeEfficiencies();
@@ -58,50 +105,60 @@ public class Cell extends PhysicsObj {
         setSize((int) (eatingDistance * 25));
         setMass(eatingDistance * 2);
         
-        this.updateSkipCounter = (int)(Math.random() * UPDATE_SKIP_FREQUENCY);
-        
-        // Dummy gradient source
-        this.cellGradientSource = new GradientSource(x, y, 10.0, this, preference);
+        this.updateSkipCounter = (int)(random.nextDouble() * UPDATE_SKIP_FREQUENCY);
     }
 
     private void randomizeEfficiencies() {
+        Random random = world().getRandom();
+        
         // Start with one strong preference
-        double r = Math.random();
+        double r = random.nextDouble();
         if (r < 0.33) {
-            redEfficiency = 0.7 + Math.random() * 0.3;
-            greenEfficiency = Math.random() * 0.3;
-            blueEfficiency = Math.random() * 0.3;
+            redEfficiency = 0.7 + random.nextDouble() * 0.3;
+            greenEfficiency = random.nextDouble() * 0.3;
+            blueEfficiency = random.nextDouble() * 0.3;
         } else if (r < 0.66) {
-            redEfficiency = Math.random() * 0.3;
-            greenEfficiency = 0.7 + Math.random() * 0.3;
-            blueEfficiency = Math.random() * 0.3;
+            redEfficiency = random.nextDouble() * 0.3;
+            greenEfficiency = 0.7 + random.nextDouble() * 0.3;
+            blueEfficiency = random.nextDouble() * 0.3;
         } else {
-            redEfficiency = Math.random() * 0.3;
-            greenEfficiency = Math.random() * 0.3;
-            blueEfficiency = 0.7 + Math.random() * 0.3;
+            redEfficiency = random.nextDouble() * 0.3;
+            greenEfficiency = random.nextDouble() * 0.3;
+            blueEfficiency = 0.7 + random.nextDouble() * 0.3;
         }
     }
 
     @Override
     protected void onAddedToWorld() {
-        SimulationWorld world = SimulationWorld.getInstance();
         world.getMultiChannelField().addSource(cellGradientSource);
     }
     
     @Override
     protected void onRemovedFromWorld() {
-        SimulationWorld world = SimulationWorld.getInstance();
         world.getMultiChannelField().removeSource(cellGradientSource);
     }
 
     @Override
     public void destroy() {
-        SimulationWorld world = SimulationWorld.getInstance();
+        SimulationWorld world = world();
+        
+        // Once per death: a cell can be destroyed again (eaten) in the tick it starved
+        if (worldIndex >= 0 && !removalQueued) {
+            SimulationEvents.CellDestroyed event = new SimulationEvents.CellDestroyed();
+            if (event.shouldCommit()) {
+                event.entityId = entityId;
+                event.age = age;
+                event.energy = energy;
+                event.predator = isPredator;
+                event.deadMatterDropped = energy > 20;
+                event.commit();
+            }
+        }
         
         // Drop gray food on death
         if (energy > 20) {
-            Food food = new Food(this.getX(), this.getY(), ChemicalSignature.zeros(), energy * 0.3);
-            food.setColor(new Color(120, 120, 120));
+            Food food = world.getEntityPool().obtainDeadMatter(this.getX(), this.getY(), energy * 0.3);
+            food.setColor(DEAD_MATTER_COLOR);
             food.setFoodType(3); // Gray = dead matter
             world.queueAddition(food);
         }
@@ -111,21 +168,31 @@ public class Cell extends PhysicsObj {
     
     @Override
     public void onUpdate() {
+        double before = energy;
+        live();
+        world.getPopulationMetrics().energyChanged(before, energy);
+    }
+    
+    /**
+     * One tick of metabolism, movement, eating and reproduction.
+     */
+    private void live() {
+        CellParameters parameters = world.getCellParameters();
         age++;
+        checkpointDirty = true; // Energy and age change every tick
         
         // Simpler metabolism: just based on size
-        double metabolism = Math.pow(eatingDistance, 1.2) * 0.3;
+        double metabolism = Math.pow(eatingDistance, parameters.getMetabolismExponent()) * parameters.getMetabolismFactor();
         energy -= metabolism;
         
         // Small cost for sensing far
-        energy -= senseRange * 0.0005;
+        energy -= senseRange * parameters.getSenseCost();
         
         // Update gradient source position
         double oldX = cellGradientSource.x;
         double oldY = cellGradientSource.y;
         cellGradientSource.updatePosition(getX(), getY());
         
-        SimulationWorld world = SimulationWorld.getInstance();
         world.getMultiChannelField().updateSource(cellGradientSource, oldX, oldY);
         
         if (energy <= 0) {
@@ -147,7 +214,7 @@ public class Cell extends PhysicsObj {
             energy -= movementForce * 0.01;
         } else {
             // Random walk if no food found
-            double angle = Math.random() * Math.PI * 2;
+            double angle = world.getRandom().nextDouble() * Math.PI * 2;
             applyForce(new Vector2D(Math.cos(angle), Math.sin(angle)).scale(movementForce * 0.3));
         }
         
@@ -171,8 +238,6 @@ public class Cell extends PhysicsObj {
      * Find direction to nearest compatible food.
      */
     private Vector2D findBestFoodDirection() {
-        SimulationWorld world = SimulationWorld.getInstance();
-        
         Food bestFood = null;
         double bestScore = -999;
         
@@ -220,7 +285,7 @@ public class Cell extends PhysicsObj {
             return world.getWrappedDelta(getX(), getY(), bestFood.getX(), bestFood.getY());
         }
         
-        return new Vector2D(0, 0);
+        return ZERO_DIRECTION;
     }
 
     /**
@@ -242,22 +307,18 @@ public class Cell extends PhysicsObj {
         if (intensity > 0.1) {
             efficiency = efficiency / intensity * 3.0;
         }
-        System.out.println(efficiency);
         return Math.min(1.0, Math.max(0, efficiency));
     }
 
     private void reproduce() {
-        SimulationWorld world = SimulationWorld.getInstance();
-        
         energy -= 100;
         
-        double offsetAngle = Math.random() * 2 * Math.PI;
+        double offsetAngle = world.getRandom().nextDouble() * 2 * Math.PI;
         double offsetDist = (getSize() + 15) / 2.0;
         
-        Cell offspring = new Cell(
+        Cell offspring = world.getEntityPool().obtainCell(
             getX() + Math.cos(offsetAngle) * offsetDist, 
-            getY() + Math.sin(offsetAngle) * offsetDist,
-            ChemicalSignature.random()
+            getY() + Math.sin(offsetAngle) * offsetDist
         );
         offspring.setEnergy(100);
         
@@ -274,9 +335,10 @@ public class Cell extends PhysicsObj {
         
         // Rare predator mutation
         offspring.isPredator = this.isPredator;
-        if (Math.random() < 0.02) {
+        CellParameters parameters = world.getCellParameters();
+        if (world.getRandom().nextDouble() < parameters.getPredatorMutationRate()) {
             offspring.isPredator = !offspring.isPredator;
-            offspring.predatorEfficiency = 0.3 + Math.random() * 0.3;
+            offspring.predatorEfficiency = 0.3 + world.getRandom().nextDouble() * 0.3;
         } else if (isPredator) {
             offspring.predatorEfficiency = mutateValue(this.predatorEfficiency, 0.1);
         }
@@ -288,7 +350,8 @@ public class Cell extends PhysicsObj {
         offspring.movementForce = Math.max(2, Math.min(20, offspring.movementForce));
         offspring.senseRange = Math.max(50, Math.min(300, offspring.senseRange));
         offspring.maxSpeed = Math.max(50, Math.min(300, offspring.maxSpeed));
-        offspring.reproductionThreshold = Math.max(150, Math.min(500, offspring.reproductionThreshold));
+        offspring.reproductionThreshold = Math.max(parameters.getMinReproductionThreshold(),
+            Math.min(parameters.getMaxReproductionThreshold(), offspring.reproductionThreshold));
         
         offspring.setEatingDistance(offspring.eatingDistance);
         
@@ -301,10 +364,20 @@ public class Cell extends PhysicsObj {
         offspring.setColor(getSpecializationColor(offspring));
         
         world.queueAddition(offspring);
+        
+        SimulationEvents.CellReproduced event = new SimulationEvents.CellReproduced();
+        if (event.shouldCommit()) {
+            event.parentId = entityId;
+            event.parentAge = age;
+            event.parentEnergy = energy;
+            event.predator = isPredator;
+            event.offspringPredator = offspring.isPredator;
+            event.commit();
+        }
     }
 
     private double mutateValue(double value, double rate) {
-        return value * (1.0 + MathFunctions.evolve(evolveRate) * rate);
+        return value * (1.0 + MathFunctions.evolve(world.getRandom(), evolveRate) * rate);
     }
 
     private Color getSpecializationColor(Cell cell) {
@@ -318,61 +391,156 @@ public class Cell extends PhysicsObj {
             b = Math.max(0, b - 50);
         }
         
-        return new Color(r, g, b);
+        return ColorPalette.get(r, g, b);
     }
     
     private void tryEatNearbyEntities() {
-        SimulationWorld world = SimulationWorld.getInstance();
-        
         double eatRadiusSq = Math.pow(eatingDistance * 30, 2);
         
-        int gridX = (int)(getX() / 50);
-        int gridY = (int)(getY() / 50);
+        int cellSize = world.getCellSize();
+        int gridWidth = world.getGridWidth();
+        int gridHeight = world.getGridHeight();
+        int gridX = (int)(getX() / cellSize);
+        int gridY = (int)(getY() / cellSize);
+        
+        // Prey must be smaller than 70% of our size, so only those size classes are scanned
+        int maxPreyClass = isPredator
+            ? CellSizeIndex.sizeClassOf((int) Math.ceil(getSize() * 0.7) - 1)
+            : -1;
         
         for (int dx = -1; dx <= 1; dx++) {
             for (int dy = -1; dy <= 1; dy++) {
-                int cx = (gridX + dx + 200) % 200;
-                int cy = (gridY + dy + 200) % 200;
+                int cx = (gridX + dx + gridWidth) % gridWidth;
+                int cy = (gridY + dy + gridHeight) % gridHeight;
                 
-                List<PhysicsObj> entities = world.getEntitiesInSpatialCell(cx, cy);
-                
-                for (PhysicsObj obj : entities) {
-                    if (obj == this) continue;
-
-
-                    Vector2D delta = world.getWrappedDelta(getX(), getY(), obj.getX(), obj.getY());
-                    System.out.println(delta);
-                    double distSq = delta.magnitudeSquared();
+                for (PhysicsObj obj : world.getSpatialBucket(cx, cy)) {
+                    if (!(obj instanceof Food)) continue; // Cells are handled by the size index
                     
-                    if (distSq < eatRadiusSq) {
-                        System.out.println("CEHCK");
-                        if (obj instanceof Food) {
-                            Food food = (Food) obj;
-                            if (food.isStatic()) continue; // Don't eat barriers
-                            
-                            double efficiency = calculateFoodEfficiency(food);
-                            
-                            if (efficiency > 0.1) { // Only eat if somewhat compatible
-                                energy += food.getNutritionalValue() * efficiency;
-                                food.destroy();
-                                lastAte = world.getFrameCount();
-                                return;
-                            }
-                        } else if (obj instanceof Cell && isPredator) {
-                            Cell prey = (Cell) obj;
-                            if (prey.getSize() < this.getSize() * 0.7) {
-                                energy += prey.energy * predatorEfficiency * 0.4;
-                                prey.destroy();
-                                lastAte = world.getFrameCount();
-                                return;
-                            }
-                        }
+                    Food food = (Food) obj;
+                    if (food.isStatic()) continue; // Don't eat barriers
+                    
+                    Vector2D delta = world.getWrappedDelta(getX(), getY(), food.getX(), food.getY());
+                    if (delta.magnitudeSquared() >= eatRadiusSq) continue;
+                    
+                    double efficiency = calculateFoodEfficiency(food);
+                    
+                    if (efficiency > 0.1) { // Only eat if somewhat compatible
+                        energy += food.getNutritionalValue() * efficiency;
+                        food.destroy();
+                        lastAte = world.getFrameCount();
+                        return;
+                    }
+                }
+                
+                for (int sizeClass = 0; sizeClass <= maxPreyClass; sizeClass++) {
+                    for (Cell prey : world.getCellsInSpatialCell(cx, cy, sizeClass)) {
+                        if (prey == this) continue;
+                        if (prey.getSize() >= this.getSize() * 0.7) continue;
+                        
+                        Vector2D delta = world.getWrappedDelta(getX(), getY(), prey.getX(), prey.getY());
+                        if (delta.magnitudeSquared() >= eatRadiusSq) continue;
+                        
+                        energy += prey.energy * predatorEfficiency * 0.4;
+                        prey.destroy();
+                        lastAte = world.getFrameCount();
+                        return;
                     }
                 }
             }
         }
     }
     
+    /**
+     * Number of values written by exportGenome, one double each.
+     */
+    public static final int GENOME_LENGTH = 11;
+    
+    /**
+     * Bytes written by writeState.
+     */
+    public static final int STATE_BYTES = 8 + 4 * 3 + 8 * 2 + 8 * ChemicalSignature.DIMENSIONS;
+    
+    /**
+     * Write the heritable traits: everything reproduce() passes on to offspring.
+     */
+    public void exportGenome(ByteBuffer out) {
+        out.putDouble(redEfficiency);
+        out.putDouble(greenEfficiency);
+        out.putDouble(blueEfficiency);
+        out.putDouble(movementForce);
+        out.putDouble(senseRange);
+        out.putDouble(eatingDistance);
+        out.putDouble(evolveRate);
+        out.putDouble(reproductionThreshold);
+        out.putDouble(maxSpeed);
+        out.putDouble(isPredator ? 1 : 0);
+        out.putDouble(predatorEfficiency);
+    }
+    
+    /**
+     * Replace this cell's traits with a genome written by exportGenome.
+     * Size, mass and color follow from the new traits.
+     */
+    public void importGenome(ByteBuffer in) {
+        redEfficiency = in.getDouble();
+        greenEfficiency = in.getDouble();
+        blueEfficiency = in.getDouble();
+        movementForce = in.getDouble();
+        senseRange = in.getDouble();
+        eatingDistance = in.getDouble();
+        evolveRate = in.getDouble();
+        reproductionThreshold = in.getDouble();
+        maxSpeed = in.getDouble();
+        isPredator = in.getDouble() != 0;
+        predatorEfficiency = in.getDouble();
+        
+        setSize((int) (eatingDistance * 25));
+        setMass(eatingDistance * 2);
+        setColor(getSpecializationColor(this));
+    }
+    
+    /**
+     * Write the non-heritable state of this cell (physics is saved separately by WorldCheckpoint).
+     */
+    void writeState(ByteBuffer out) {
+        out.putDouble(energy);
+        out.putInt(age);
+        out.putInt(lastAte);
+        out.putInt(updateSkipCounter);
+        out.putDouble(cachedMoveDirection.x);
+        out.putDouble(cachedMoveDirection.y);
+        
+        ChemicalSignature preference = cellGradientSource.chemistry;
+        for (int i = 0; i < ChemicalSignature.DIMENSIONS; i++) {
+            out.putDouble(preference.get(i));
+        }
+    }
+    
+    /**
+     * Read state written by writeState, keeping the gradient source in step.
+     */
+    void readState(ByteBuffer in) {
+        energy = in.getDouble();
+        age = in.getInt();
+        lastAte = in.getInt();
+        updateSkipCounter = in.getInt();
+        double moveX = in.getDouble();
+        double moveY = in.getDouble();
+        cachedMoveDirection = moveX == 0 && moveY == 0 ? ZERO_DIRECTION : new Vector2D(moveX, moveY);
+        
+        ChemicalSignature preference = cellGradientSource.chemistry;
+        for (int i = 0; i < ChemicalSignature.DIMENSIONS; i++) {
+            preference.set(i, in.getDouble());
+        }
+        double oldX = cellGradientSource.x;
+        double oldY = cellGradientSource.y;
+        cellGradientSource.updatePosition(getX(), getY());
+        cellGradientSource.updateChemistry(preference);
+        if (worldIndex >= 0) {
+            world.getMultiChannelField().updateSource(cellGradientSource, oldX, oldY);
+        }
+    }
+    
     // Getters
     public double getEnergy() { return energy; }
     public int getAge() { return age; }
@@ -395,15 +563,22 @@ public class Cell extends PhysicsObj {
     
     // Setters
     public void setEnergy(double energy) {
+        double before = this.energy;
         this.energy = Math.max(0, energy);
+        checkpointDirty = true;
+        if (worldIndex >= 0) {
+            world.getPopulationMetrics().energyChanged(before, this.energy);
+        }
     }
     
     public void setReproductionThreshold(double amount) {
         this.reproductionThreshold = Math.max(amount, 100.0);
+        checkpointDirty = true;
     }
     
     public void setMovementForce(double force) {
         this.movementForce = Math.max(1.0, Math.min(20.0, force));
+        checkpointDirty = true;
     }
     
     public void setWasteThreshold(double threshold) {
@@ -411,7 +586,11 @@ public class Cell extends PhysicsObj {
     }
     
     public void setMaxSpeed(double speed) {
+        PopulationMetrics metrics = worldIndex >= 0 ? world.getPopulationMetrics() : null;
+        if (metrics != null) metrics.untrack(this);
         this.maxSpeed = Math.max(50.0, Math.min(300.0, speed));
+        checkpointDirty = true;
+        if (metrics != null) metrics.track(this);
     }
     
     public void setEatingDistance(double distance) {
@@ -0,0 +1,73 @@
+//CELLPARAMETERS.JAVA
+
+package Cells;
+
+/**
+ * Tunable constants of cell behaviour, one set per world so parameter sweeps can vary them.
+ * Defaults are the values the simulation was tuned with.
+ */
+public class CellParameters {
+    private double metabolismExponent = 1.2;        // Metabolism per tick = eatingDistance ^ exponent * factor
+    private double metabolismFactor = 0.3;
+    private double senseCost = 0.0005;              // Energy per tick per unit of sense range
+    private double predatorMutationRate = 0.02;     // Chance an offspring flips between predator and grazer
+    private double minReproductionThreshold = 150;
+    private double maxReproductionThreshold = 500;
+    
+    public CellParameters() {
+    }
+    
+    public CellParameters(CellParameters other) {
+        this.metabolismExponent = other.metabolismExponent;
+        this.metabolismFactor = other.metabolismFactor;
+        this.senseCost = other.senseCost;
+        this.predatorMutationRate = other.predatorMutationRate;
+        this.minReproductionThreshold = other.minReproductionThreshold;
+        this.maxReproductionThreshold = other.maxReproductionThreshold;
+    }
+    
+    // Getters
+    public double getMetabolismExponent() { return metabolismExponent; }
+    public double getMetabolismFactor() { return metabolismFactor; }
+    public double getSenseCost() { return senseCost; }
+    public double getPredatorMutationRate() { return predatorMutationRate; }
+    public double getMinReproductionThreshold() { return minReproductionThreshold; }
+    public double getMaxReproductionThreshold() { return maxReproductionThreshold; }
+    
+    // Setters (return this so a sweep can chain them)
+    public CellParameters setMetabolismExponent(double exponent) {
+        this.metabolismExponent = exponent;
+        return this;
+    }
+    
+    public CellParameters setMetabolismFactor(double factor) {
+        this.metabolismFactor = factor;
+        return this;
+    }
+    
+    public CellParameters setSenseCost(double cost) {
+        this.senseCost = cost;
+        return this;
+    }
+    
+    public CellParameters setPredatorMutationRate(double rate) {
+        this.predatorMutationRate = Math.max(0, Math.min(1, rate));
+        return this;
+    }
+    
+    public CellParameters setReproductionThresholdBounds(double min, double max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Reproduction threshold bounds reversed: " + min + " > " + max);
+        }
+        this.minReproductionThreshold = min;
+        this.maxReproductionThreshold = max;
+        return this;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("metabolism=%.3f*d^%.3f sense=%.5f predatorMutation=%.3f reproduction=[%.0f, %.0f]",
+            metabolismFactor, metabolismExponent, senseCost, predatorMutationRate,
+            minReproductionThreshold, maxReproductionThreshold);
+    }
+}
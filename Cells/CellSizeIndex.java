@@ -0,0 +1,90 @@
+//CELLSIZEINDEX.JAVA
+
+package Cells;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secondary spatial index that only holds Cells, bucketed by size class.
+ * Shares grid keys with the world's main spatial hash so predators can
+ * look up just the prey sizes they are allowed to eat.
+ */
+public class CellSizeIndex {
+    public static final int SIZE_CLASS_WIDTH = 8;
+    public static final int NUM_SIZE_CLASSES = 10; // Covers sizes 0-79, cells are clamped to 8-75
+
+    // One spatial hash per size class: grid key -> cells
+    private final List<Map<Integer, List<Cell>>> sizeClasses;
+
+    public CellSizeIndex() {
+        this.sizeClasses = new ArrayList<>(NUM_SIZE_CLASSES);
+        for (int i = 0; i < NUM_SIZE_CLASSES; i++) {
+            sizeClasses.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Get the size class bucket for a cell size.
+     */
+    public static int sizeClassOf(int size) {
+        return Math.max(0, Math.min(NUM_SIZE_CLASSES - 1, size / SIZE_CLASS_WIDTH));
+    }
+
+    /**
+     * Add a cell under the given grid key.
+     */
+    public void add(Cell cell, int hash) {
+        int sizeClass = sizeClassOf(cell.getSize());
+        SimulationWorld.insertById(sizeClasses.get(sizeClass).computeIfAbsent(hash, k -> new ArrayList<>()), cell);
+        cell.indexedHash = hash;
+        cell.indexedSizeClass = sizeClass;
+    }
+
+    /**
+     * Remove a cell from whatever bucket it was last indexed under.
+     */
+    public void remove(Cell cell) {
+        if (cell.indexedSizeClass < 0) return;
+
+        Map<Integer, List<Cell>> buckets = sizeClasses.get(cell.indexedSizeClass);
+        List<Cell> bucket = buckets.get(cell.indexedHash);
+        if (bucket != null) {
+            bucket.remove(cell);
+            if (bucket.isEmpty()) {
+                buckets.remove(cell.indexedHash);
+            }
+        }
+        cell.indexedHash = -1;
+        cell.indexedSizeClass = -1;
+    }
+
+    /**
+     * Move a cell if its grid key or size class changed.
+     */
+    public void update(Cell cell, int hash) {
+        if (cell.indexedHash == hash && cell.indexedSizeClass == sizeClassOf(cell.getSize())) {
+            return;
+        }
+        remove(cell);
+        add(cell, hash);
+    }
+
+    /**
+     * Get cells of one size class in a grid bucket.
+     * Returns the live bucket, callers must not modify it.
+     */
+    public List<Cell> getCells(int hash, int sizeClass) {
+        List<Cell> bucket = sizeClasses.get(sizeClass).get(hash);
+        return bucket != null ? bucket : Collections.emptyList();
+    }
+
+    public void clear() {
+        for (Map<Integer, List<Cell>> buckets : sizeClasses) {
+            buckets.clear();
+        }
+    }
+}
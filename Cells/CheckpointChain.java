@@ -0,0 +1,163 @@
+//CHECKPOINTCHAIN.JAVA
+
+package Cells;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Periodic checkpoints of one world as a full base snapshot followed by a chain of deltas.
+ * Each delta holds only what changed since the previous file, so checkpoint I/O follows
+ * how much of the world is active rather than how many entities it holds.
+ * The chain is compacted into a new base once it gets long, or once its deltas add up to
+ * more than the base, and the old chain's files are deleted after the new base is written.
+ * Files live in one directory: checkpoint_<stamp>.world for a base, checkpoint_<stamp>_<n>.delta for its deltas.
+ * Callers must hold the world's tick lock.
+ */
+public class CheckpointChain {
+    private static final int MAX_DELTAS = 16;
+    private static final String PREFIX = "checkpoint_";
+    
+    private final File directory;
+    
+    private long chainStamp = -1; // -1 = no base written or restored yet
+    private int sequence = 0;
+    private long baseBytes = 0;
+    private long deltaBytes = 0;
+    
+    public CheckpointChain(File directory) {
+        this.directory = directory;
+    }
+    
+    /**
+     * Write the world's changes since the previous checkpoint as the next delta,
+     * or start a new chain with a full base when compaction is due.
+     *
+     * @return Size of the file written, in bytes
+     */
+    public long checkpoint(SimulationWorld world) throws IOException {
+        long bytes;
+        if (isCompactionDue(world)) {
+            long oldStamp = chainStamp;
+            int oldSequence = sequence;
+            
+            // Stamps only need to be unique and increasing within the directory
+            long stamp = Math.max(System.currentTimeMillis(), chainStamp + 1);
+            bytes = WorldCheckpoint.save(world, baseFile(stamp), stamp);
+            chainStamp = stamp;
+            sequence = 0;
+            baseBytes = bytes;
+            deltaBytes = 0;
+            
+            if (oldStamp >= 0) {
+                deleteChain(oldStamp, oldSequence);
+            }
+        } else {
+            bytes = WorldCheckpoint.saveDelta(world, deltaFile(chainStamp, sequence + 1), chainStamp, sequence + 1);
+            sequence++;
+            deltaBytes += bytes;
+        }
+        
+        world.markCheckpointed();
+        return bytes;
+    }
+    
+    private boolean isCompactionDue(SimulationWorld world) {
+        return chainStamp < 0
+            || world.isBaseCheckpointRequired()
+            || sequence >= MAX_DELTAS
+            || deltaBytes > baseBytes;
+    }
+    
+    /**
+     * Replace the world's contents with the newest chain in the directory: its base plus every delta that follows it.
+     * Stops at the first missing or unreadable delta, so a checkpoint interrupted mid-write only loses that step.
+     *
+     * @return Number of deltas applied on top of the base
+     */
+    public int restore(SimulationWorld world) throws IOException {
+        long stamp = findLatestBase();
+        if (stamp < 0) {
+            throw new IOException("No checkpoint in " + directory);
+        }
+        
+        WorldCheckpoint.load(world, baseFile(stamp));
+        long bytes = baseFile(stamp).length();
+        long deltas = 0;
+        
+        int applied = 0;
+        while (true) {
+            File file = deltaFile(stamp, applied + 1);
+            if (!file.isFile()) {
+                break;
+            }
+            
+            try {
+                WorldCheckpoint.Header header = WorldCheckpoint.readHeader(file);
+                if (header.type != WorldCheckpoint.TYPE_DELTA || header.chainStamp != stamp || header.sequence != applied + 1) {
+                    System.out.println("Checkpoint chain stops at " + file + ": not the next delta");
+                    break;
+                }
+                WorldCheckpoint.applyDelta(world, file);
+            } catch (IOException e) {
+                System.out.println("Checkpoint chain stops at " + file + ": " + e.getMessage());
+                break;
+            }
+            deltas += file.length();
+            applied++;
+        }
+        
+        // Continue the restored chain from the last good delta, dropping anything after it
+        for (int i = applied + 1; deltaFile(stamp, i).isFile(); i++) {
+            deltaFile(stamp, i).delete();
+        }
+        chainStamp = stamp;
+        sequence = applied;
+        baseBytes = bytes;
+        deltaBytes = deltas;
+        world.markCheckpointed();
+        return applied;
+    }
+    
+    public int getDeltaCount() { return sequence; }
+    public long getBaseBytes() { return baseBytes; }
+    public long getDeltaBytes() { return deltaBytes; }
+    
+    private File baseFile(long stamp) {
+        return new File(directory, PREFIX + stamp + ".world");
+    }
+    
+    private File deltaFile(long stamp, int sequence) {
+        return new File(directory, PREFIX + stamp + "_" + sequence + ".delta");
+    }
+    
+    private long findLatestBase() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return -1;
+        }
+        
+        long latest = -1;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(PREFIX) && name.endsWith(".world")) {
+                try {
+                    latest = Math.max(latest, Long.parseLong(name.substring(PREFIX.length(), name.length() - 6)));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return latest;
+    }
+    
+    /**
+     * Delete a superseded chain. A delta left behind is harmless: restore ignores chains older than the newest base.
+     */
+    private void deleteChain(long stamp, int lastSequence) {
+        for (int i = lastSequence; i >= 1; i--) {
+            deltaFile(stamp, i).delete();
+        }
+        baseFile(stamp).delete();
+    }
+}
@@ -2,6 +2,7 @@
 
 package Cells;
 
+import java.util.Random;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -28,9 +29,13 @@ public class ChemicalSignature {
     }
     
     public static ChemicalSignature random() {
+        return random(SimulationWorld.getInstance().getRandom());
+    }
+    
+    public static ChemicalSignature random(Random random) {
         double[] comps = new double[DIMENSIONS];
         for (int i = 0; i < DIMENSIONS; i++) {
-            comps[i] = Math.random();
+            comps[i] = random.nextDouble();
         }
         return new ChemicalSignature(comps);
     }
@@ -39,6 +44,28 @@ public class ChemicalSignature {
         return new ChemicalSignature(new double[DIMENSIONS]);
     }
     
+    /**
+     * Overwrite this signature with random components (allocation-free random()).
+     */
+    public void fillRandom() {
+        fillRandom(SimulationWorld.getInstance().getRandom());
+    }
+    
+    public void fillRandom(Random random) {
+        for (int i = 0; i < DIMENSIONS; i++) {
+            components[i] = random.nextDouble();
+        }
+    }
+    
+    /**
+     * Overwrite this signature with zeros (allocation-free zeros()).
+     */
+    public void fillZeros() {
+        for (int i = 0; i < DIMENSIONS; i++) {
+            components[i] = 0;
+        }
+    }
+    
     /**
      * Calculate Euclidean distance to another signature.
      */
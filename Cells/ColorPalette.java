@@ -0,0 +1,33 @@
+//COLORPALETTE.JAVA
+
+package Cells;
+
+import java.awt.Color;
+
+/**
+ * Shared cache of opaque colors so spawning and reproduction don't allocate a
+ * new Color per entity. Channels are quantized to 5 bits (steps of 8).
+ */
+public class ColorPalette {
+    private static final int BITS = 5;
+    private static final int SHIFT = 8 - BITS;
+    private static final Color[] CACHE = new Color[1 << (BITS * 3)];
+    
+    /**
+     * Get a cached color close to the given RGB values (0-255).
+     */
+    public static Color get(int r, int g, int b) {
+        r = Math.max(0, Math.min(255, r)) >> SHIFT;
+        g = Math.max(0, Math.min(255, g)) >> SHIFT;
+        b = Math.max(0, Math.min(255, b)) >> SHIFT;
+        
+        int key = (r << (BITS * 2)) | (g << BITS) | b;
+        Color color = CACHE[key];
+        if (color == null) {
+            // Color is immutable, so a racy double-create is harmless
+            color = new Color(r << SHIFT, g << SHIFT, b << SHIFT);
+            CACHE[key] = color;
+        }
+        return color;
+    }
+}
@@ -0,0 +1,247 @@
+//DIRTYREGIONTRACKER.JAVA
+
+package Cells;
+
+import java.util.Arrays;
+
+/**
+ * Tracks which screen tiles changed between frames.
+ * Every drawn entity folds its screen bounds and color into the signature of each tile
+ * it touches; a tile whose signature differs from last frame holds an entity that moved,
+ * appeared, disappeared or changed color, so it covers both the old and the new bounds.
+ * Areas drawn over the scene (UI text, tooltips, selection) are recorded as decorations
+ * and repainted the next frame so they never leave trails.
+ */
+public class DirtyRegionTracker {
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int columns;
+    private final int rows;
+    
+    private long[] signatures;
+    private long[] previousSignatures;
+    private boolean hasPrevious = false;
+    
+    private final boolean[] dirty;
+    private int dirtyCount;
+    
+    // Entities added this frame, with the tile range each one touches
+    private int entityCount;
+    private int[] entityEntry = new int[1024];
+    private int[] entityTiles = new int[1024 * 4]; // minX, minY, maxX, maxY
+    
+    // Entity entries binned by tile: tile t holds tileEntries[tileStart[t]] .. tileEntries[tileStart[t + 1] - 1]
+    private final int[] tileStart;
+    private int[] tileEntries = new int[1024];
+    
+    // Decoration rectangles (x, y, width, height) drawn this frame and last frame
+    private int[] decorations = new int[64 * 4];
+    private int decorationCount;
+    private int[] previousDecorations = new int[64 * 4];
+    private int previousDecorationCount;
+    
+    public DirtyRegionTracker(int width, int height, int tileSize) {
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.columns = (width + tileSize - 1) / tileSize;
+        this.rows = (height + tileSize - 1) / tileSize;
+        
+        int tiles = columns * rows;
+        this.signatures = new long[tiles];
+        this.previousSignatures = new long[tiles];
+        this.dirty = new boolean[tiles];
+        this.tileStart = new int[tiles + 1];
+    }
+    
+    /**
+     * Start a new frame: forget this frame's entities, signatures and dirty tiles.
+     */
+    public void beginFrame() {
+        Arrays.fill(signatures, 0L);
+        Arrays.fill(dirty, false);
+        dirtyCount = 0;
+        entityCount = 0;
+    }
+    
+    /**
+     * Add an entity drawn with the given screen bounds and color.
+     *
+     * @param entry Caller's id for the entity, handed back by getTileEntry
+     */
+    public void addEntity(int entry, int left, int top, int size, int argb) {
+        // One pixel of antialiasing bleed on each side
+        int minX = Math.max(0, left - 1);
+        int minY = Math.max(0, top - 1);
+        int maxX = Math.min(width, left + size + 1) - 1;
+        int maxY = Math.min(height, top + size + 1) - 1;
+        if (minX > maxX || minY > maxY) return;
+        
+        int minTileX = minX / tileSize;
+        int minTileY = minY / tileSize;
+        int maxTileX = maxX / tileSize;
+        int maxTileY = maxY / tileSize;
+        
+        long value = left * 73856093L ^ top * 19349663L ^ size * 83492791L ^ (argb & 0xFFFFFFFFL) << 20;
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                int tile = tileY * columns + tileX;
+                signatures[tile] = signatures[tile] * 31 + value;
+            }
+        }
+        
+        if (entityCount == entityEntry.length) {
+            entityEntry = Arrays.copyOf(entityEntry, entityCount * 2);
+            entityTiles = Arrays.copyOf(entityTiles, entityCount * 8);
+        }
+        entityEntry[entityCount] = entry;
+        int base = entityCount * 4;
+        entityTiles[base] = minTileX;
+        entityTiles[base + 1] = minTileY;
+        entityTiles[base + 2] = maxTileX;
+        entityTiles[base + 3] = maxTileY;
+        entityCount++;
+    }
+    
+    /**
+     * Mark tiles whose contents changed since last frame, plus everything under last frame's decorations.
+     */
+    public void compareWithPreviousFrame() {
+        for (int tile = 0; tile < signatures.length; tile++) {
+            if (!hasPrevious || signatures[tile] != previousSignatures[tile]) {
+                markTile(tile);
+            }
+        }
+        
+        for (int i = 0; i < previousDecorationCount; i++) {
+            int base = i * 4;
+            markArea(previousDecorations[base], previousDecorations[base + 1],
+                     previousDecorations[base + 2], previousDecorations[base + 3]);
+        }
+    }
+    
+    /**
+     * Counting sort of this frame's entity entries into the tiles they touch, in the order they were added.
+     */
+    public void binEntities() {
+        Arrays.fill(tileStart, 0);
+        
+        int total = 0;
+        for (int i = 0; i < entityCount; i++) {
+            int base = i * 4;
+            for (int tileY = entityTiles[base + 1]; tileY <= entityTiles[base + 3]; tileY++) {
+                for (int tileX = entityTiles[base]; tileX <= entityTiles[base + 2]; tileX++) {
+                    tileStart[tileY * columns + tileX]++;
+                    total++;
+                }
+            }
+        }
+        
+        if (tileEntries.length < total) {
+            tileEntries = new int[Math.max(total, tileEntries.length * 2)];
+        }
+        
+        // Inclusive prefix sum gives tile ends; filling backwards turns them into starts
+        int tiles = signatures.length;
+        for (int t = 1; t < tiles; t++) {
+            tileStart[t] += tileStart[t - 1];
+        }
+        for (int i = entityCount - 1; i >= 0; i--) {
+            int base = i * 4;
+            for (int tileY = entityTiles[base + 3]; tileY >= entityTiles[base + 1]; tileY--) {
+                for (int tileX = entityTiles[base + 2]; tileX >= entityTiles[base]; tileX--) {
+                    tileEntries[--tileStart[tileY * columns + tileX]] = entityEntry[i];
+                }
+            }
+        }
+        tileStart[tiles] = total;
+    }
+    
+    /**
+     * Record an area drawn on top of the scene this frame.
+     */
+    public void recordDecoration(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) return;
+        
+        if (decorationCount * 4 == decorations.length) {
+            decorations = Arrays.copyOf(decorations, decorations.length * 2);
+        }
+        int base = decorationCount * 4;
+        decorations[base] = x;
+        decorations[base + 1] = y;
+        decorations[base + 2] = w;
+        decorations[base + 3] = h;
+        decorationCount++;
+    }
+    
+    /**
+     * Mark this frame's decorations dirty too, so they are included when blitting.
+     */
+    public void markDecorations() {
+        for (int i = 0; i < decorationCount; i++) {
+            int base = i * 4;
+            markArea(decorations[base], decorations[base + 1], decorations[base + 2], decorations[base + 3]);
+        }
+    }
+    
+    /**
+     * Finish the frame: this frame's signatures and decorations become the previous ones.
+     */
+    public void endFrame() {
+        long[] swapSignatures = previousSignatures;
+        previousSignatures = signatures;
+        signatures = swapSignatures;
+        hasPrevious = true;
+        
+        int[] swapDecorations = previousDecorations;
+        previousDecorations = decorations;
+        previousDecorationCount = decorationCount;
+        decorations = swapDecorations;
+        decorationCount = 0;
+    }
+    
+    /**
+     * Forget the previous frame, so every tile counts as dirty next frame.
+     */
+    public void invalidate() {
+        hasPrevious = false;
+    }
+    
+    public void markArea(int x, int y, int w, int h) {
+        int minX = Math.max(0, x);
+        int minY = Math.max(0, y);
+        int maxX = Math.min(width, x + w) - 1;
+        int maxY = Math.min(height, y + h) - 1;
+        if (minX > maxX || minY > maxY) return;
+        
+        for (int tileY = minY / tileSize; tileY <= maxY / tileSize; tileY++) {
+            for (int tileX = minX / tileSize; tileX <= maxX / tileSize; tileX++) {
+                markTile(tileY * columns + tileX);
+            }
+        }
+    }
+    
+    private void markTile(int tile) {
+        if (!dirty[tile]) {
+            dirty[tile] = true;
+            dirtyCount++;
+        }
+    }
+    
+    /**
+     * Fraction of tiles currently marked dirty.
+     */
+    public double getDirtyFraction() {
+        return (double) dirtyCount / dirty.length;
+    }
+    
+    // Getters
+    public int getTileSize() { return tileSize; }
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
+    public boolean isDirty(int tile) { return dirty[tile]; }
+    public int getTileStart(int tile) { return tileStart[tile]; }
+    public int getTileEnd(int tile) { return tileStart[tile + 1]; }
+    public int getTileEntry(int k) { return tileEntries[k]; }
+}
@@ -4,15 +4,16 @@ package Cells;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.List;
+import java.awt.image.DataBufferInt;
 
 /**
  * Handles rendering with multi-channel gradient visualization.
  */
 public class Displayer {
     private final DrawingPanel panel;
-    private final BufferedImage buffer;
-    private final Graphics2D g2;
+    private BufferedImage buffer;
+    private Graphics2D g2;
+    private int[] pixels; // Backing store of buffer, for direct pixel writes
     private final Graphics panelGraphics;
 
     private MouseManager mouseManager;
@@ -30,195 +31,519 @@ public class Displayer {
     private static final Color UI_TEXT_COLOR = new Color(200, 200, 200);
     private static final Color LOOP_LINE_COLOR = new Color(255, 255, 255, 50);
     private static final Font UI_FONT = new Font("Monospaced", Font.PLAIN, 12);
+    private static final Color SELECTION_COLOR = new Color(120, 200, 255, 160);
+    private static final Color SELECTION_FILL_COLOR = new Color(120, 200, 255, 30);
+    private static final BasicStroke SELECTION_STROKE = new BasicStroke(1.0f);
+    private static final Color HOVER_RING_COLOR = new Color(255, 255, 255, 100);
+    private static final BasicStroke HOVER_RING_STROKE = new BasicStroke(2);
+    private static final BasicStroke LOOP_LINE_STROKE = new BasicStroke(1.0f);
+    private static final Color CONTROLS_COLOR = new Color(150, 150, 150, 200);
+    private static final Font CONTROLS_FONT = new Font("Monospaced", Font.PLAIN, 10);
     
     // Gradient visualization
     private boolean showGradientField = true;
     private int gradientResolution = 20;
+    private final GradientOverlay gradientOverlay = new GradientOverlay(gradientResolution);
+    
+    // Last color built by setColorArgb
+    private Color currentColor;
+    
+    // Render quality: requested from the AWT thread, applied at the start of the next frame
+    private RenderProfile renderProfile = RenderProfile.QUALITY;
+    private volatile RenderProfile requestedProfile = RenderProfile.QUALITY;
+    private final double[] profileFrameMillis = new double[RenderProfile.values().length]; // Smoothed display() cost
+    
+    // Entities smaller than SpriteRaster.MAX_DIAMETER screen pixels skip Java2D
+    private final SpriteRaster spriteRaster = new SpriteRaster();
+    private boolean rasterSmallEntities = true;
+    
+    // Sprite-only frames with many entities are stamped tile by tile on several threads
+    private static final int PARALLEL_MIN_ENTITIES = 5000;
+    private final TileRasterizer tileRasterizer = new TileRasterizer(Runtime.getRuntime().availableProcessors() - 1);
+    private boolean parallelTiles = true;
+    private int trackedEntityCount;
+    private int vectorEntityCount; // Entities this frame too large for SpriteRaster, drawn through Java2D
+    
+    // Per-layer draw lists, indexed by WorldSnapshot.KIND_*
+    private final DrawList[] drawLayers = { new DrawList(), new DrawList(), new DrawList() };
+    private static final double MAX_ENTITY_RADIUS = 40.0; // Cells are at most 75 units across
+    private int[] visibleColumns = new int[0];
+    private float[] visibleColumnOffsets = new float[0];
+    
+    // Level of detail: below this zoom, entities are drawn as a per-bucket density heatmap
+    private static final double LOD_ZOOM_THRESHOLD = 0.2; // Food is under a pixel wide from here on
+    private static final int LOD_SATURATION_COUNT = 8;    // Bucket population drawn fully opaque
+    private static final int[] LOD_DENSITY_ALPHA = new int[LOD_SATURATION_COUNT + 1];
+    private boolean densityLod = true;
+    private int[] screenBucketColumns = new int[0];
+    
+    // Active frame recording, if any (toggled from the AWT thread)
+    private volatile FrameRecorder recorder;
+    
+    // Dirty regions: only tiles whose contents changed are cleared, redrawn and blitted
+    private static final int DIRTY_TILE_SIZE = 50;
+    private static final double FULL_REDRAW_THRESHOLD = 0.5; // Dirty fraction above which a full redraw is cheaper
+    private final DirtyRegionTracker dirtyRegions;
+    private boolean partialRedraw = true;
+    private double lastCameraX = Double.NaN;
+    private double lastCameraY = Double.NaN;
+    private double lastZoom = Double.NaN;
+    private boolean lastShowGradientField;
+    private boolean lastDensityView;
+    private double lastRedrawFraction = 1.0;
+    private final Rectangle decorationBounds = new Rectangle();
+    
+    static {
+        for (int count = 1; count <= LOD_SATURATION_COUNT; count++) {
+            LOD_DENSITY_ALPHA[count] = 96 + (255 - 96) * (count - 1) / (LOD_SATURATION_COUNT - 1);
+        }
+    }
     
     public Displayer(int width, int height, MouseManager mouseManager) {
         this.panel = new DrawingPanel(Math.min(1000, width), Math.min(1000, height));
-        this.buffer = new BufferedImage(
-            Math.min(1000, width), 
-            Math.min(1000, height), 
-            BufferedImage.TYPE_INT_ARGB
-        );
-        this.g2 = buffer.createGraphics();
         this.panelGraphics = panel.getGraphics();
         this.mouseManager = mouseManager;
         
+        createBuffer(Math.min(1000, width), Math.min(1000, height));
+        this.dirtyRegions = new DirtyRegionTracker(buffer.getWidth(), buffer.getHeight(), DIRTY_TILE_SIZE);
+        
         this.cameraX = width / 2.0;
         this.cameraY = height / 2.0;
         this.zoom = 1.0;
+    }
+    
+    /**
+     * (Re)create the back buffer with the current render profile's image type and hints.
+     */
+    private void createBuffer(int width, int height) {
+        if (g2 != null) {
+            g2.dispose();
+        }
+        
+        this.buffer = new BufferedImage(width, height, renderProfile.getBufferType());
+        this.g2 = buffer.createGraphics();
+        this.pixels = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
+        this.currentColor = null;
         
-        setupRenderingHints();
+        renderProfile.applyHints(g2);
     }
     
-    private void setupRenderingHints() {
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, 
-                           RenderingHints.VALUE_ANTIALIAS_ON);
-        g2.setRenderingHint(RenderingHints.KEY_RENDERING, 
-                           RenderingHints.VALUE_RENDER_QUALITY);
-        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-                           RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    /**
+     * Switch render profiles if one was requested since the last frame.
+     */
+    private void applyRequestedProfile() {
+        RenderProfile requested = requestedProfile;
+        if (requested == renderProfile) return;
+        
+        renderProfile = requested;
+        createBuffer(buffer.getWidth(), buffer.getHeight());
+        dirtyRegions.invalidate();
     }
     
+    /**
+     * Render one frame. Safe to call from a dedicated render thread: entities are
+     * drawn from the latest published WorldSnapshot, and live world state is only
+     * read while holding the world's tick lock.
+     * While the camera and overlays stay put, only tiles whose contents changed are
+     * redrawn and copied to the panel.
+     */
     public void display() {
-        SimulationWorld world = SimulationWorld.getInstance();
+        long frameStart = System.nanoTime();
+        Profiler.begin(Profiler.Phase.FRAME);
+        applyRequestedProfile();
         
-        clearBuffer();
+        SimulationWorld world = SimulationWorld.getInstance();
+        WorldSnapshot snapshot = world.getSnapshotBuffer().acquire();
         
+        boolean overlayChanged = false;
         if (showGradientField) {
-            drawMultiChannelGradientField();
+            Profiler.begin(Profiler.Phase.GRADIENT_OVERLAY);
+            overlayChanged = gradientOverlay.update(this, world, buffer.getWidth(), buffer.getHeight());
+            Profiler.end(Profiler.Phase.GRADIENT_OVERLAY);
+        }
+        boolean densityView = isDensityView();
+        
+        dirtyRegions.beginFrame();
+        if (!densityView) {
+            collectVisibleEntities(snapshot);
+            trackVisibleEntities(snapshot);
         }
+        dirtyRegions.compareWithPreviousFrame();
+        
+        boolean fullRedraw = !partialRedraw || densityView || overlayChanged
+            || cameraX != lastCameraX || cameraY != lastCameraY || zoom != lastZoom
+            || showGradientField != lastShowGradientField || densityView != lastDensityView
+            || dirtyRegions.getDirtyFraction() > FULL_REDRAW_THRESHOLD;
         
-        drawEntitiesWithLooping(world.getEntities());
-        drawLoopLines();
+        if (fullRedraw) {
+            clearBuffer();
+            
+            if (showGradientField) {
+                Profiler.begin(Profiler.Phase.GRADIENT_OVERLAY);
+                gradientOverlay.draw(g2);
+                Profiler.end(Profiler.Phase.GRADIENT_OVERLAY);
+            }
+            
+            Profiler.begin(Profiler.Phase.ENTITY_DRAW);
+            if (densityView) {
+                drawDensityHeatmap(snapshot);
+            } else if (useTileRasterizer()) {
+                dirtyRegions.binEntities();
+                tileRasterizer.run(dirtyRegions.getColumns() * dirtyRegions.getRows(),
+                                   tile -> drawTileEntities(snapshot, tile));
+            } else {
+                drawEntitiesWithLooping(snapshot);
+            }
+            drawLoopLines();
+            Profiler.stop(Profiler.Phase.ENTITY_DRAW);
+            lastRedrawFraction = 1.0;
+        } else {
+            Profiler.begin(Profiler.Phase.ENTITY_DRAW);
+            lastRedrawFraction = dirtyRegions.getDirtyFraction();
+            dirtyRegions.binEntities();
+            redrawDirtyTiles(snapshot);
+            Profiler.stop(Profiler.Phase.ENTITY_DRAW);
+        }
+        Profiler.commit(Profiler.Phase.GRADIENT_OVERLAY);
+        
+        // Record the scene without the UI on top
+        FrameRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            activeRecorder.capture(pixels);
+        }
+        
+        Profiler.begin(Profiler.Phase.UI_DRAW);
+        drawSelection(snapshot);
         drawUI(world);
-        drawTooltips();
+        drawTooltips(snapshot);
+        Profiler.stop(Profiler.Phase.UI_DRAW);
+        
+        if (fullRedraw) {
+            panelGraphics.drawImage(buffer, 0, 0, null);
+            panel.repaint(0, 0, buffer.getWidth(), buffer.getHeight());
+        } else {
+            dirtyRegions.markDecorations();
+            blitDirtyTiles();
+        }
         
-        panelGraphics.drawImage(buffer, 0, 0, null);
+        dirtyRegions.endFrame();
+        Profiler.stop(Profiler.Phase.FRAME);
+        double frameMillis = (System.nanoTime() - frameStart) / 1e6;
+        int slot = renderProfile.ordinal();
+        profileFrameMillis[slot] = profileFrameMillis[slot] == 0 ? frameMillis
+                                 : profileFrameMillis[slot] * 0.95 + frameMillis * 0.05;
+        
+        lastCameraX = cameraX;
+        lastCameraY = cameraY;
+        lastZoom = zoom;
+        lastShowGradientField = showGradientField;
+        lastDensityView = densityView;
     }
     
-    private void drawMultiChannelGradientField() {
-        SimulationWorld world = SimulationWorld.getInstance();
-        MultiChannelGradientField multiField = world.getMultiChannelField();
-        
-        int screenWidth = buffer.getWidth();
-        int screenHeight = buffer.getHeight();
-        
-        for (int screenX = 0; screenX < screenWidth; screenX += gradientResolution) {
-            for (int screenY = 0; screenY < screenHeight; screenY += gradientResolution) {
-                double worldX = screenToWorldX(screenX);
-                double worldY = screenToWorldY(screenY);
-                
-                // Sample gradient field
-                GradientSample sample = multiField.sampleAll(worldX, worldY);
-                
-                float intensity = (float)Math.min(1.0, sample.strength / 100.0);
+    /**
+     * Feed the screen bounds of every collected entity to the dirty region tracker.
+     * Entries are numbered in draw order: layer 0 first, then layer 1, then layer 2.
+     */
+    private void trackVisibleEntities(WorldSnapshot snapshot) {
+        vectorEntityCount = 0;
+        int entry = 0;
+        for (DrawList layer : drawLayers) {
+            for (int i = 0; i < layer.count; i++, entry++) {
+                int index = layer.index[i];
+                int scaledSize = Math.max(1, (int) (snapshot.size[index] * zoom));
+                int left = (int) (worldToScreenX(layer.x[i]) - scaledSize / 2.0);
+                int top = (int) (worldToScreenY(layer.y[i]) - scaledSize / 2.0);
+                dirtyRegions.addEntity(entry, left, top, scaledSize, snapshot.argb[index]);
                 
-                if (intensity > 0.05f) {
-                    // Visualize as white gradient
-                    Color gradientColor = new Color(intensity, intensity, intensity, intensity * 0.3f);
-                    g2.setColor(gradientColor);
-                    
-                    int size = gradientResolution;
-                    g2.fillRect(screenX, screenY, size, size);
-                    
-                    // Draw direction arrow for strong gradients
-                    if (zoom > 0.5 && intensity > 0.3f) {
-                        drawGradientArrow(screenX + size/2, screenY + size/2, 
-                                        sample.directionX, sample.directionY, 
-                                        intensity, Color.WHITE);
-                    }
+                if (!rasterSmallEntities || scaledSize > SpriteRaster.MAX_DIAMETER) {
+                    vectorEntityCount++;
                 }
             }
         }
+        trackedEntityCount = entry;
     }
     
     /**
-     * Draw gradient arrow with specified color.
+     * Whether this frame's entities can be drawn on the tile rasterizer: only SpriteRaster
+     * stamps are thread safe, and small populations are not worth handing off.
      */
-    private void drawGradientArrow(int x, int y, double dirX, double dirY, float intensity, Color color) {
-        g2.setColor(new Color(color.getRed()/255f, color.getGreen()/255f, color.getBlue()/255f, intensity * 0.5f));
-        
-        int arrowLength = (int)(gradientResolution * 0.4);
-        int endX = x + (int)(dirX * arrowLength);
-        int endY = y + (int)(dirY * arrowLength);
-        
-        g2.setStroke(new BasicStroke(1.5f));
-        g2.drawLine(x, y, endX, endY);
-        
-        // Arrowhead
-        double angle = Math.atan2(dirY, dirX);
-        int headSize = 3;
-        int[] xPoints = {
-            endX,
-            endX - (int)(headSize * Math.cos(angle - Math.PI/6)),
-            endX - (int)(headSize * Math.cos(angle + Math.PI/6))
-        };
-        int[] yPoints = {
-            endY,
-            endY - (int)(headSize * Math.sin(angle - Math.PI/6)),
-            endY - (int)(headSize * Math.sin(angle + Math.PI/6))
-        };
-        g2.fillPolygon(xPoints, yPoints, 3);
+    private boolean useTileRasterizer() {
+        return parallelTiles && tileRasterizer.getWorkerCount() > 0
+            && vectorEntityCount == 0 && trackedEntityCount >= PARALLEL_MIN_ENTITIES;
     }
     
     /**
-     * Draw entities with looping (show copies across boundaries).
+     * Clear and redraw each dirty tile with everything that overlaps it, clipped to the tile.
+     * With the tile rasterizer, backgrounds are drawn first, entities are stamped in parallel
+     * and loop lines go on top, which layers each pixel the same way.
      */
-    private void drawEntitiesWithLooping(List<PhysicsObj> entities) {
-        SimulationWorld world = SimulationWorld.getInstance();
-        double worldWidth = world.getTotalWidth();
-        double worldHeight = world.getTotalHeight();
+    private void redrawDirtyTiles(WorldSnapshot snapshot) {
+        int tiles = dirtyRegions.getColumns() * dirtyRegions.getRows();
+        boolean parallel = useTileRasterizer();
         
-        // Draw in layers (Food, then Cells, then others)
-        for (PhysicsObj entity : entities) {
-            if (entity instanceof Food) {
-                drawEntityWithLooping(entity, worldWidth, worldHeight);
+        for (int tile = 0; tile < tiles; tile++) {
+            if (!dirtyRegions.isDirty(tile)) continue;
+            
+            clipToTile(tile);
+            g2.setColor(BACKGROUND_COLOR);
+            g2.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+            
+            if (showGradientField) {
+                gradientOverlay.draw(g2);
+            }
+            
+            if (!parallel) {
+                drawTileEntities(snapshot, tile);
+                drawLoopLines();
             }
         }
         
-        for (PhysicsObj entity : entities) {
-            if (entity instanceof Cell) {
-                drawEntityWithLooping(entity, worldWidth, worldHeight);
+        if (parallel) {
+            tileRasterizer.run(tiles, tile -> {
+                if (dirtyRegions.isDirty(tile)) {
+                    drawTileEntities(snapshot, tile);
+                }
+            });
+            
+            for (int tile = 0; tile < tiles; tile++) {
+                if (!dirtyRegions.isDirty(tile)) continue;
+                clipToTile(tile);
+                drawLoopLines();
             }
         }
         
-        for (PhysicsObj entity : entities) {
-            if (!(entity instanceof Food) && !(entity instanceof Cell)) {
-                drawEntityWithLooping(entity, worldWidth, worldHeight);
+        g2.setClip(null);
+    }
+    
+    private void clipToTile(int tile) {
+        int tileSize = dirtyRegions.getTileSize();
+        int columns = dirtyRegions.getColumns();
+        int left = (tile % columns) * tileSize;
+        int top = (tile / columns) * tileSize;
+        g2.setClip(left, top, Math.min(buffer.getWidth(), left + tileSize) - left,
+                   Math.min(buffer.getHeight(), top + tileSize) - top);
+    }
+    
+    /**
+     * Draw every entity binned into a tile, in draw order, clipped to the tile.
+     * Only touches the tile's own pixels when all entities are sprites.
+     */
+    private void drawTileEntities(WorldSnapshot snapshot, int tile) {
+        int tileSize = dirtyRegions.getTileSize();
+        int columns = dirtyRegions.getColumns();
+        int clipLeft = (tile % columns) * tileSize;
+        int clipTop = (tile / columns) * tileSize;
+        int clipRight = Math.min(buffer.getWidth(), clipLeft + tileSize);
+        int clipBottom = Math.min(buffer.getHeight(), clipTop + tileSize);
+        
+        int end = dirtyRegions.getTileEnd(tile);
+        for (int k = dirtyRegions.getTileStart(tile); k < end; k++) {
+            int entry = dirtyRegions.getTileEntry(k);
+            
+            // Entry back to its draw list
+            DrawList layer = drawLayers[0];
+            for (int l = 0; entry >= layer.count; l++) {
+                entry -= layer.count;
+                layer = drawLayers[l + 1];
             }
+            
+            drawEntity(snapshot, layer.index[entry], layer.x[entry], layer.y[entry],
+                       clipLeft, clipTop, clipRight, clipBottom);
         }
     }
     
     /**
-     * Draw an entity and its looping copies if they're visible.
+     * Copy runs of dirty tiles to the panel and repaint them on screen, one rectangle per run
+     * within a tile row. Nothing is repainted when nothing is dirty.
      */
-    private void drawEntityWithLooping(PhysicsObj entity, double worldWidth, double worldHeight) {
-        double x = entity.getX();
-        double y = entity.getY();
+    private void blitDirtyTiles() {
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        int tileSize = dirtyRegions.getTileSize();
+        int columns = dirtyRegions.getColumns();
+        
+        for (int row = 0; row < dirtyRegions.getRows(); row++) {
+            int top = row * tileSize;
+            int bottom = Math.min(height, top + tileSize);
+            
+            int column = 0;
+            while (column < columns) {
+                if (!dirtyRegions.isDirty(row * columns + column)) {
+                    column++;
+                    continue;
+                }
+                
+                int runStart = column;
+                while (column < columns && dirtyRegions.isDirty(row * columns + column)) {
+                    column++;
+                }
+                
+                int left = runStart * tileSize;
+                int right = Math.min(width, column * tileSize);
+                panelGraphics.drawImage(buffer, left, top, right, bottom, left, top, right, bottom, null);
+                panel.repaint(left, top, right - left, bottom - top);
+            }
+        }
+    }
+    
+    /**
+     * Note an area drawn over the scene, so it is repainted next frame.
+     */
+    private void recordDecoration(int x, int y, int width, int height) {
+        dirtyRegions.recordDecoration(x, y, width, height);
+    }
+    
+    /**
+     * Draw entities with looping (show copies across boundaries).
+     * Only snapshot buckets overlapping the visible world rectangle are visited;
+     * buckets beyond the seam are visited again with a shifted copy position.
+     */
+    private void drawEntitiesWithLooping(WorldSnapshot snapshot) {
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
         
-        // Draw main entity
-        drawEntity(entity, x, y);
+        // Draw in layers (Food, then Cells, then others)
+        for (DrawList layer : drawLayers) {
+            for (int i = 0; i < layer.count; i++) {
+                drawEntity(snapshot, layer.index[i], layer.x[i], layer.y[i], 0, 0, width, height);
+            }
+        }
+    }
+    
+    /**
+     * Draw one entity copy, touching only pixels inside the clip rectangle.
+     */
+    private void drawEntity(WorldSnapshot snapshot, int index, float worldX, float worldY,
+                            int clipLeft, int clipTop, int clipRight, int clipBottom) {
+        double exactSize = snapshot.size[index] * zoom;
+        int scaledSize = Math.max(1, (int) exactSize);
+        int argb = snapshot.argb[index];
+        
+        if (rasterSmallEntities && scaledSize <= SpriteRaster.MAX_DIAMETER) {
+            // Fast path: stamp a precomputed sprite mask straight into the pixel buffer
+            int left = (int) (worldToScreenX(worldX) - scaledSize / 2.0);
+            int top = (int) (worldToScreenY(worldY) - scaledSize / 2.0);
+            
+            if (exactSize < 1 && renderProfile.isSubPixelAsPoint()) {
+                // Single opaque pixel, no blending
+                if (left >= clipLeft && left < clipRight && top >= clipTop && top < clipBottom) {
+                    pixels[top * buffer.getWidth() + left] = argb | 0xFF000000;
+                }
+                return;
+            }
+            spriteRaster.stamp(pixels, buffer.getWidth(), left, top, scaledSize, argb,
+                               clipLeft, clipTop, clipRight, clipBottom);
+        } else {
+            setColorArgb(argb);
+            drawCircle(worldX, worldY, snapshot.size[index]);
+        }
+    }
+    
+    /**
+     * Zoomed-out view: every screen pixel takes the average color of the snapshot bucket
+     * under it, with opacity from the bucket's population. Cost depends on the screen
+     * size only, no matter how many entities there are.
+     */
+    private void drawDensityHeatmap(WorldSnapshot snapshot) {
+        if (snapshot.count == 0) return;
         
-        // Check if entity is near boundaries and draw copies
-        double screenX = worldToScreenX(x);
-        double screenY = worldToScreenY(y);
-        double entityScreenSize = entity.getSize() * zoom;
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        int cellSize = snapshot.cellSize;
         
-        // Left/Right wrapping
-        if (screenX < entityScreenSize) {
-            drawEntity(entity, x + worldWidth, y);
-        } else if (screenX > buffer.getWidth() - entityScreenSize) {
-            drawEntity(entity, x - worldWidth, y);
+        // Wrapped bucket column for each screen column
+        if (screenBucketColumns.length < width) {
+            screenBucketColumns = new int[width];
+        }
+        for (int screenX = 0; screenX < width; screenX++) {
+            int gridX = (int) Math.floor(screenToWorldX(screenX + 0.5) / cellSize);
+            screenBucketColumns[screenX] = Math.floorMod(gridX, snapshot.gridWidth);
         }
         
-        // Top/Bottom wrapping
-        if (screenY < entityScreenSize) {
-            drawEntity(entity, x, y + worldHeight);
-        } else if (screenY > buffer.getHeight() - entityScreenSize) {
-            drawEntity(entity, x, y - worldHeight);
+        int[] bucketStart = snapshot.bucketStart;
+        int[] bucketArgb = snapshot.bucketColors();
+        
+        for (int screenY = 0; screenY < height; screenY++) {
+            int gridY = (int) Math.floor(screenToWorldY(screenY + 0.5) / cellSize);
+            int rowBase = Math.floorMod(gridY, snapshot.gridHeight) * snapshot.gridWidth;
+            int pixelRow = screenY * width;
+            
+            for (int screenX = 0; screenX < width; screenX++) {
+                int bucket = rowBase + screenBucketColumns[screenX];
+                int count = bucketStart[bucket + 1] - bucketStart[bucket];
+                if (count == 0) continue;
+                
+                int alpha = LOD_DENSITY_ALPHA[Math.min(count, LOD_SATURATION_COUNT)];
+                int p = pixelRow + screenX;
+                pixels[p] = SpriteRaster.blend(pixels[p], bucketArgb[bucket] & 0xFFFFFF, alpha);
+            }
+        }
+    }
+    
+    private boolean isDensityView() {
+        return densityLod && zoom < LOD_ZOOM_THRESHOLD;
+    }
+    
+    /**
+     * Single pass over the visible buckets, sorting entities into per-layer draw lists.
+     */
+    private void collectVisibleEntities(WorldSnapshot snapshot) {
+        for (DrawList layer : drawLayers) {
+            layer.count = 0;
+        }
+        if (snapshot.count == 0) return;
+        
+        int cellSize = snapshot.cellSize;
+        double worldWidth = (double) cellSize * snapshot.gridWidth;
+        double worldHeight = (double) cellSize * snapshot.gridHeight;
+        double margin = MAX_ENTITY_RADIUS;
+        
+        int minGridX = (int) Math.floor((screenToWorldX(0) - margin) / cellSize);
+        int maxGridX = (int) Math.floor((screenToWorldX(buffer.getWidth()) + margin) / cellSize);
+        int minGridY = (int) Math.floor((screenToWorldY(0) - margin) / cellSize);
+        int maxGridY = (int) Math.floor((screenToWorldY(buffer.getHeight()) + margin) / cellSize);
+        
+        // Zoomed out past the whole world: visit each bucket once
+        maxGridX = Math.min(maxGridX, minGridX + snapshot.gridWidth - 1);
+        maxGridY = Math.min(maxGridY, minGridY + snapshot.gridHeight - 1);
+        
+        // Wrapped column and copy offset per visible column, so the inner loop has no modulo
+        int columns = maxGridX - minGridX + 1;
+        if (visibleColumns.length < columns) {
+            visibleColumns = new int[columns];
+            visibleColumnOffsets = new float[columns];
+        }
+        for (int c = 0; c < columns; c++) {
+            int gridX = minGridX + c;
+            visibleColumns[c] = Math.floorMod(gridX, snapshot.gridWidth);
+            visibleColumnOffsets[c] = (float) (Math.floorDiv(gridX, snapshot.gridWidth) * worldWidth);
         }
         
-        // Corner wrapping
-        if (screenX < entityScreenSize && screenY < entityScreenSize) {
-            drawEntity(entity, x + worldWidth, y + worldHeight);
-        } else if (screenX > buffer.getWidth() - entityScreenSize && screenY < entityScreenSize) {
-            drawEntity(entity, x - worldWidth, y + worldHeight);
-        } else if (screenX < entityScreenSize && screenY > buffer.getHeight() - entityScreenSize) {
-            drawEntity(entity, x + worldWidth, y - worldHeight);
-        } else if (screenX > buffer.getWidth() - entityScreenSize && screenY > buffer.getHeight() - entityScreenSize) {
-            drawEntity(entity, x - worldWidth, y - worldHeight);
+        int[] bucketStart = snapshot.bucketStart;
+        for (int gridY = minGridY; gridY <= maxGridY; gridY++) {
+            float offsetY = (float) (Math.floorDiv(gridY, snapshot.gridHeight) * worldHeight);
+            int rowBase = Math.floorMod(gridY, snapshot.gridHeight) * snapshot.gridWidth;
+            
+            for (int c = 0; c < columns; c++) {
+                int bucket = rowBase + visibleColumns[c];
+                int end = bucketStart[bucket + 1];
+                
+                for (int k = bucketStart[bucket]; k < end; k++) {
+                    int index = snapshot.order[k];
+                    drawLayers[snapshot.kind[index]].add(index, snapshot.x[index] + visibleColumnOffsets[c], snapshot.y[index] + offsetY);
+                }
+            }
         }
     }
     
     /**
-     * Draw a single entity at specific world coordinates.
+     * Set the drawing color from a packed ARGB value, reusing the current Color when unchanged.
      */
-    private void drawEntity(PhysicsObj entity, double worldX, double worldY) {
-        g2.setColor(entity.getColor());
-        drawCircle(worldX, worldY, entity.getSize());
+    private void setColorArgb(int argb) {
+        if (currentColor == null || currentColor.getRGB() != argb) {
+            currentColor = new Color(argb, true);
+        }
+        g2.setColor(currentColor);
     }
     
     /**
@@ -230,7 +555,7 @@ public class Displayer {
         double worldHeight = world.getTotalHeight();
         
         g2.setColor(LOOP_LINE_COLOR);
-        g2.setStroke(new BasicStroke(1.0f));
+        g2.setStroke(LOOP_LINE_STROKE);
         
         // Draw vertical lines
         for (double worldX = 0; worldX <= worldWidth; worldX += worldWidth) {
@@ -249,42 +574,76 @@ public class Displayer {
         }
     }
     
-    public void updateCamera(List<PhysicsObj> entities) {
-        if (entities.isEmpty()) return;
+    public void updateCamera(WorldSnapshot snapshot) {
+        if (snapshot.count == 0) return;
         
-        Vector2D centerOfMass = calculateCenterOfMass(entities);
-        double idealZoom = calculateIdealZoom(entities);
+        Vector2D centerOfMass = calculateCenterOfMass(snapshot);
+        double idealZoom = calculateIdealZoom(snapshot);
         
         cameraX += (centerOfMass.x - cameraX) * CAMERA_SMOOTH;
         cameraY += (centerOfMass.y - cameraY) * CAMERA_SMOOTH;
         zoom += (idealZoom - zoom) * ZOOM_SMOOTH;
     }
 
-    private void drawTooltips() {
-        if (mouseManager.isHoveringEntity()) {
-            PhysicsObj hoveredEntity = mouseManager.getHoveredEntity();
+    /**
+     * Outline selected entities and the selection drag in progress.
+     */
+    private void drawSelection(WorldSnapshot snapshot) {
+        g2.setStroke(SELECTION_STROKE);
+        
+        Shape dragShape = mouseManager.getSelectionShape();
+        if (dragShape != null) {
+            g2.setColor(SELECTION_FILL_COLOR);
+            g2.fill(dragShape);
+            g2.setColor(SELECTION_COLOR);
+            g2.draw(dragShape);
             
-            g2.setColor(new Color(255, 255, 255, 100));
-            g2.setStroke(new BasicStroke(2));
-            double screenX = worldToScreenX(hoveredEntity.getX());
-            double screenY = worldToScreenY(hoveredEntity.getY());
-            int screenSize = Math.max(1, (int) (hoveredEntity.getSize() * zoom));
+            Rectangle bounds = dragShape.getBounds();
+            recordDecoration(bounds.x - 1, bounds.y - 1, bounds.width + 3, bounds.height + 3);
+        }
+        
+        g2.setColor(SELECTION_COLOR);
+        for (int k = 0; k < mouseManager.getSelectedCount(); k++) {
+            int i = snapshot.indexOf(mouseManager.getSelectedId(k));
+            if (i < 0) continue; // Left the world in a tick the mouse manager has not seen yet
             
-            g2.drawOval(
-                (int) (screenX - screenSize / 2.0 - 3),
-                (int) (screenY - screenSize / 2.0 - 3),
-                screenSize + 6,
-                screenSize + 6
-            );
+            double screenX = worldToScreenX(snapshot.x[i]);
+            double screenY = worldToScreenY(snapshot.y[i]);
+            int screenSize = Math.max(1, (int) (snapshot.size[i] * zoom)) + 4;
+            int left = (int) (screenX - screenSize / 2.0);
+            int top = (int) (screenY - screenSize / 2.0);
+            
+            g2.drawOval(left, top, screenSize, screenSize);
+            recordDecoration(left - 1, top - 1, screenSize + 3, screenSize + 3);
+        }
+    }
+    
+    private void drawTooltips(WorldSnapshot snapshot) {
+        int hovered = snapshot.indexOf(mouseManager.getHoveredId());
+        if (hovered >= 0) {
+            g2.setColor(HOVER_RING_COLOR);
+            g2.setStroke(HOVER_RING_STROKE);
+            double screenX = worldToScreenX(snapshot.x[hovered]);
+            double screenY = worldToScreenY(snapshot.y[hovered]);
+            int screenSize = Math.max(1, (int) (snapshot.size[hovered] * zoom));
+            int left = (int) (screenX - screenSize / 2.0 - 3);
+            int top = (int) (screenY - screenSize / 2.0 - 3);
+            
+            g2.drawOval(left, top, screenSize + 6, screenSize + 6);
+            recordDecoration(left - 2, top - 2, screenSize + 10, screenSize + 10);
             
             EntityTooltip.draw(
                 g2, 
-                hoveredEntity, 
+                this, 
+                snapshot, 
+                hovered, 
                 mouseManager.getMouseX(), 
                 mouseManager.getMouseY(),
                 buffer.getWidth(),
                 buffer.getHeight()
             );
+            EntityTooltip.getLastBounds(decorationBounds);
+            recordDecoration(decorationBounds.x, decorationBounds.y, decorationBounds.width, decorationBounds.height);
         }
     }
     
@@ -310,21 +669,85 @@ public class Displayer {
         drawText(String.format("Status: %s", world.isPaused() ? "PAUSED" : "RUNNING"), x, y);
         y += lineHeight;
         
-        drawText(String.format("Zoom: %.2fx", zoom), x, y);
+        drawText(String.format("Zoom: %.2fx%s", zoom, isDensityView() ? " (density)" : ""), x, y);
         y += lineHeight;
         
         drawText(String.format("Gradient: %s (%d channels)", showGradientField ? "ON" : "OFF", MultiChannelGradientField.NUM_CHANNELS), x, y);
         y += lineHeight;
         
+        int selected = mouseManager.getSelectedCount();
+        if (selected > 0) {
+            drawText(String.format("Selected: %d (%d cells, %d food)", selected,
+                mouseManager.getSelectedCellCount(), mouseManager.getSelectedFoodCount()), x, y);
+            y += lineHeight;
+        }
+        
+        FrameRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            drawText(String.format("REC: %d frames (%d dropped)", activeRecorder.getFramesCaptured(),
+                activeRecorder.getFramesDropped()), x, y);
+            y += lineHeight;
+        }
+        
+        GameLoop gameLoop = Main.getGameLoop();
+        if (gameLoop != null) {
+            drawText(String.format("Sim: %.0f ticks/s (%s)%s", gameLoop.getTicksPerSecond(),
+                gameLoop.isMaxSpeed() ? "MAX" : String.format("%.0f Hz", gameLoop.getTickRate()),
+                gameLoop.isBehind() ? " BEHIND" : ""), x, y);
+            y += lineHeight;
+            
+            drawText(String.format("Render: %.0f fps (cap %d), redrew %.0f%%", gameLoop.getFramesPerSecond(),
+                gameLoop.getMaxRenderFps(), lastRedrawFraction * 100), x, y);
+            y += lineHeight;
+            
+            drawText(String.format("Profile: %s %.1f ms/frame (QUALITY %.1f, BALANCED %.1f, FAST %.1f)",
+                renderProfile, profileFrameMillis[renderProfile.ordinal()],
+                profileFrameMillis[RenderProfile.QUALITY.ordinal()],
+                profileFrameMillis[RenderProfile.BALANCED.ordinal()],
+                profileFrameMillis[RenderProfile.FAST.ordinal()]), x, y);
+            y += lineHeight;
+        }
+        
+        if (Profiler.isEnabled()) {
+            drawProfiler(x, y + lineHeight / 2, lineHeight);
+        }
+        
         drawControlsHelp();
     }
     
+    /**
+     * Table of the profiler's last one-second window: p50, p99 and mean per phase with the
+     * bytes each allocates, then the simulation thread's allocation rate and GC activity.
+     */
+    private void drawProfiler(int x, int y, int lineHeight) {
+        drawText(String.format("%-17s %8s %8s %8s %9s %6s", "Phase (ms)", "p50", "p99", "mean", "alloc KB", "n/s"), x, y);
+        y += lineHeight;
+        
+        for (Profiler.Phase phase : Profiler.Phase.values()) {
+            Profiler.Summary summary = Profiler.getSummary(phase);
+            if (summary == null) {
+                drawText(String.format("%-17s %8s", phase.getLabel(), "-"), x, y);
+            } else {
+                drawText(String.format("%-17s %8.3f %8.3f %8.3f %9.1f %6d", phase.getLabel(),
+                    summary.p50Millis, summary.p99Millis, summary.meanMillis, summary.meanBytes / 1024, summary.count), x, y);
+            }
+            y += lineHeight;
+        }
+        
+        AllocationMonitor allocation = Main.getAllocationMonitor();
+        drawText(String.format("Sim alloc: %.1f MB/s (%.0f KB/tick)  GC: %.1f/s, %.0f ms/s",
+            allocation.getBytesPerSecond() / 1e6, allocation.getBytesPerTick() / 1024,
+            allocation.getCollectionsPerSecond(), allocation.getCollectionMillisPerSecond()), x, y);
+    }
+    
     private void drawControlsHelp() {
-        g2.setColor(new Color(150, 150, 150, 200));
-        g2.setFont(new Font("Monospaced", Font.PLAIN, 10));
+        g2.setColor(CONTROLS_COLOR);
+        g2.setFont(CONTROLS_FONT);
         
         String[] controls = {
-            "SPACE:Pause  WASD:Camera  E/Q:Zoom  G:Toggle Gradient  1-5:Parameter  [/]:Adjust"
+            "SPACE:Pause  WASD:Camera  E/Q:Zoom  G:Toggle Gradient  L:Density LOD  M:Max Speed  1-5:Parameter  [/]:Adjust",
+            "R/Shift+R:Record PNG/RGBA  P:Render Profile  F7:Partial Redraw  F8:Parallel Tiles  Drag:Select  Shift+Drag:Lasso",
+            "F5/F9:Save/Load  F6:Autosave  Shift+F9:Restore Autosave  J/Shift+J:Record/Replay Inputs  T:Record Metrics  F3:Profiler"
         };
         
         int y = buffer.getHeight() - 10;
@@ -336,6 +759,10 @@ public class Displayer {
     
     private void drawText(String text, int x, int y) {
         g2.drawString(text, x, y);
+        
+        FontMetrics metrics = g2.getFontMetrics();
+        recordDecoration(x - 1, y - metrics.getAscent() - 1,
+                         metrics.stringWidth(text) + 2, metrics.getAscent() + metrics.getDescent() + 2);
     }
     
     private void drawCircle(double worldX, double worldY, int size) {
@@ -368,15 +795,15 @@ public class Displayer {
         return (worldY - cameraY) * zoom + buffer.getHeight() / 2.0;
     }
     
-    private Vector2D calculateCenterOfMass(List<PhysicsObj> entities) {
+    private Vector2D calculateCenterOfMass(WorldSnapshot snapshot) {
         double totalMass = 0;
         double centerX = 0;
         double centerY = 0;
         
-        for (PhysicsObj entity : entities) {
-            double mass = entity.getMass();
-            centerX += entity.getX() * mass;
-            centerY += entity.getY() * mass;
+        for (int i = 0; i < snapshot.count; i++) {
+            double mass = snapshot.mass[i];
+            centerX += snapshot.x[i] * mass;
+            centerY += snapshot.y[i] * mass;
             totalMass += mass;
         }
         
@@ -388,10 +815,10 @@ public class Displayer {
         return new Vector2D(centerX, centerY);
     }
     
-    private double calculateIdealZoom(List<PhysicsObj> entities) {
-        if (entities.isEmpty()) return 1.0;
+    private double calculateIdealZoom(WorldSnapshot snapshot) {
+        if (snapshot.count == 0) return 1.0;
         
-        BoundingBox bounds = calculateBoundingBox(entities);
+        BoundingBox bounds = calculateBoundingBox(snapshot);
         
         double objectWidth = bounds.width + ZOOM_MARGIN * 2;
         double objectHeight = bounds.height + ZOOM_MARGIN * 2;
@@ -403,8 +830,8 @@ public class Displayer {
         return Math.max(0.1, Math.min(3.0, idealZoom));
     }
     
-    private BoundingBox calculateBoundingBox(List<PhysicsObj> entities) {
-        if (entities.isEmpty()) {
+    private BoundingBox calculateBoundingBox(WorldSnapshot snapshot) {
+        if (snapshot.count == 0) {
             return new BoundingBox(0, 0, 0, 0);
         }
         
@@ -413,10 +840,10 @@ public class Displayer {
         double maxX = Double.MIN_VALUE;
         double maxY = Double.MIN_VALUE;
         
-        for (PhysicsObj entity : entities) {
-            double x = entity.getX();
-            double y = entity.getY();
-            double halfSize = entity.getSize() / 2.0;
+        for (int i = 0; i < snapshot.count; i++) {
+            double x = snapshot.x[i];
+            double y = snapshot.y[i];
+            double halfSize = snapshot.size[i] / 2.0;
             
             minX = Math.min(minX, x - halfSize);
             minY = Math.min(minY, y - halfSize);
@@ -437,12 +864,98 @@ public class Displayer {
     
     public void toggleGradientField() {
         showGradientField = !showGradientField;
+        gradientOverlay.invalidate(); // The field kept changing while hidden
+    }
+    
+    public void togglePartialRedraw() {
+        partialRedraw = !partialRedraw;
+    }
+    
+    public boolean isPartialRedraw() {
+        return partialRedraw;
+    }
+    
+    public void toggleParallelTiles() {
+        parallelTiles = !parallelTiles;
+    }
+    
+    public boolean isParallelTiles() {
+        return parallelTiles;
+    }
+    
+    public void toggleDensityLod() {
+        densityLod = !densityLod;
+    }
+    
+    public boolean isDensityLod() {
+        return densityLod;
+    }
+    
+    /**
+     * Switch to the next render profile; takes effect on the next frame.
+     */
+    public RenderProfile cycleRenderProfile() {
+        RenderProfile next = requestedProfile.next();
+        requestedProfile = next;
+        return next;
+    }
+    
+    public RenderProfile getRenderProfile() {
+        return renderProfile;
+    }
+    
+    /**
+     * Start recording frames to a new directory under recordings/, or stop the current recording.
+     */
+    public void toggleRecording(FrameRecorder.Format format) {
+        FrameRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            recorder = null;
+            activeRecorder.stop();
+            return;
+        }
+        
+        String name = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date());
+        try {
+            recorder = new FrameRecorder(new java.io.File("recordings", "recording_" + name),
+                                         buffer.getWidth(), buffer.getHeight(), format);
+            System.out.println("Recording " + format + " to " + recorder.getDirectory());
+        } catch (java.io.IOException e) {
+            System.out.println("Could not start recording: " + e.getMessage());
+        }
+    }
+    
+    public boolean isRecording() {
+        return recorder != null;
     }
     
     public boolean isShowingGradientField() {
         return showGradientField;
     }
     
+    /**
+     * Growable list of entity indices with the world position to draw each copy at.
+     */
+    private static class DrawList {
+        int count = 0;
+        int[] index = new int[1024];
+        float[] x = new float[1024];
+        float[] y = new float[1024];
+        
+        void add(int entityIndex, float worldX, float worldY) {
+            if (count == index.length) {
+                int capacity = count * 2;
+                index = java.util.Arrays.copyOf(index, capacity);
+                x = java.util.Arrays.copyOf(x, capacity);
+                y = java.util.Arrays.copyOf(y, capacity);
+            }
+            index[count] = entityIndex;
+            x[count] = worldX;
+            y[count] = worldY;
+            count++;
+        }
+    }
+    
     private static class BoundingBox {
         final double x, y, width, height;
         
@@ -2329,6 +2329,35 @@ public final class DrawingPanel implements ImageObserver {
 		}
 	}
 	
+	/**
+	 * Repaints one rectangle of the window from the off-screen image, for programs
+	 * that know which part of the image they changed.
+	 * If the DrawingPanel is not showing on the screen, has no effect.
+	 * @param x left edge of the rectangle, in image pixels
+	 * @param y top edge of the rectangle, in image pixels
+	 * @param width width of the rectangle, in image pixels
+	 * @param height height of the rectangle, in image pixels
+	 */
+	public void repaint(int x, int y, int width, int height) {
+		if (imagePanel != null && width > 0 && height > 0) {
+			imagePanel.repaint(x * currentZoom, y * currentZoom, width * currentZoom, height * currentZoom);
+		}
+	}
+	
+	/**
+	 * Sets how often the internal timer repaints the whole window, in milliseconds.
+	 * Programs that repaint what they change themselves (see repaint(int, int, int, int))
+	 * can slow it down so it only catches stray drawing.
+	 * @param millis delay between full repaints (default 100)
+	 * @throws IllegalArgumentException if millis is not positive
+	 */
+	public void setRepaintDelay(int millis) {
+		ensureInRange("millis", millis, 1, Integer.MAX_VALUE);
+		if (timer != null) {
+			timer.setDelay(millis);
+		}
+	}
+	
 	/**
 	 * Moves the drawing panel window on top of other windows so it can be seen.
 	 */
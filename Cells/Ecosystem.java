@@ -0,0 +1,228 @@
+//ECOSYSTEM.JAVA
+
+package Cells;
+
+import java.awt.Color;
+import java.util.Random;
+
+/**
+ * The rules that drive one world from tick to tick: the initial scene, regional food spawning
+ * and the environmental cycle that shifts which food type is abundant. Each world owns one, so
+ * several worlds can run side by side, each with its own tick counter.
+ */
+public class Ecosystem {
+    // Food region parameters - each quadrant specialized
+    public static final int CYCLE_LENGTH = 600; // 10 seconds per cycle
+    
+    private final SimulationWorld world;
+    private int cycles = 0;       // Ticks run
+    private int currentCycle = 0; // Environmental shifts so far
+    private boolean verbose = true;
+    
+    Ecosystem(SimulationWorld world) {
+        this.world = world;
+    }
+    
+    /**
+     * Advance the world by one tick: world update, food spawning, environment shifts, pending changes.
+     * Everything here draws from the world's RNG, so the same state always leads to the same next state.
+     * Call on the world's thread, with its tick lock held if other threads can see it.
+     */
+    public void step() {
+        Profiler.begin(Profiler.Phase.TICK);
+        world.getPopulationMetrics().startTick();
+        cycles++;
+        
+        world.update();
+        
+        // Spawn food continuously in different regions
+        if (!world.isPaused() && cycles % 3 == 0) {
+            Profiler.begin(Profiler.Phase.FOOD_SPAWN);
+            spawnRegionalFood();
+            Profiler.stop(Profiler.Phase.FOOD_SPAWN);
+        }
+        
+        // Environmental shift every 10 seconds
+        if (!world.isPaused() && cycles % CYCLE_LENGTH == 0) {
+            environmentalShift();
+        }
+        
+        Profiler.begin(Profiler.Phase.PENDING_CHANGES);
+        world.processPendingChanges();
+        Profiler.stop(Profiler.Phase.PENDING_CHANGES);
+        Profiler.stop(Profiler.Phase.TICK);
+    }
+    
+    /**
+     * Create initial scene with 4 clear regions.
+     */
+    public void populate() {
+        double width = world.getTotalWidth();
+        double height = world.getTotalHeight();
+        Random random = world.getRandom();
+        
+        // Spawn initial cells in center
+        for (int i = 0; i < 20; i++) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            double dist = random.nextDouble() * 100;
+            Cell cell = new Cell(
+                world,
+                width / 2 + Math.cos(angle) * dist,
+                height / 2 + Math.sin(angle) * dist,
+                ChemicalSignature.random(random)
+            );
+            world.addEntity(cell);
+        }
+        
+        // Spawn initial food in all regions
+        for (int i = 0; i < 20000; i++) {
+            spawnRegionalFood();
+        }
+        
+        if (!verbose) return;
+        
+        System.out.println("=== DISCRETE FOOD TYPE SIMULATION ===");
+        System.out.println("Food types:");
+        System.out.println("  RED (top-left) - high energy, common");
+        System.out.println("  GREEN (top-right) - medium energy, very common");
+        System.out.println("  BLUE (bottom-left) - low energy, extremely common");
+        System.out.println("  GRAY - dead matter, appears randomly");
+        System.out.println("");
+        System.out.println("Cells evolve red/green/blue eating efficiencies");
+        System.out.println("Specialists eat faster but generalists survive shifts");
+        System.out.println("Environmental shift every 10 seconds");
+    }
+    
+    /**
+     * Spawn food in specific regions based on type.
+     */
+    private void spawnRegionalFood() {
+        double width = world.getTotalWidth();
+        double height = world.getTotalHeight();
+        Random random = world.getRandom();
+        
+        // Cycle determines which food type is abundant
+        int dominantType = (currentCycle / CYCLE_LENGTH) % 3;
+        
+        // Choose random food type with bias
+        int foodType;
+        double r = random.nextDouble();
+        
+        if (r < 0.5) {
+            // 50% chance: spawn dominant type
+            foodType = dominantType;
+        } else if (r < 0.8) {
+            // 30% chance: spawn other types
+            foodType = (dominantType + 1 + (int)(random.nextDouble() * 2)) % 3;
+        } else {
+            // 20% chance: spawn gray dead matter
+            foodType = 3;
+        }
+        
+        // Choose region based on food type
+        double x, y;
+        
+        switch (foodType) {
+            case 0: // RED - top-left quadrant
+                x = random.nextDouble() * width * 0.6;
+                y = random.nextDouble() * height * 0.6;
+                break;
+            case 1: // GREEN - top-right quadrant
+                x = width * 0.4 + random.nextDouble() * width * 0.6;
+                y = random.nextDouble() * height * 0.6;
+                break;
+            case 2: // BLUE - bottom half
+                x = random.nextDouble() * width;
+                y = height * 0.4 + random.nextDouble() * height * 0.6;
+                break;
+            case 3: // GRAY - anywhere
+            default:
+                x = random.nextDouble() * width;
+                y = random.nextDouble() * height;
+                break;
+        }
+        
+        // Add some randomness
+        x += (random.nextDouble() - 0.5) * 50;
+        y += (random.nextDouble() - 0.5) * 50;
+        x = ((x % width) + width) % width;
+        y = ((y % height) + height) % height;
+        
+        // Nutrition varies by type
+        double nutrition;
+        Color color;
+        
+        switch (foodType) {
+            case 0: // RED - high energy, rare
+                nutrition = 80 + random.nextDouble() * 40;
+                color = ColorPalette.get(200 + (int)(random.nextDouble() * 55), 50, 50);
+                break;
+            case 1: // GREEN - medium energy, common
+                nutrition = 50 + random.nextDouble() * 30;
+                color = ColorPalette.get(50, 200 + (int)(random.nextDouble() * 55), 50);
+                break;
+            case 2: // BLUE - low energy, very common
+                nutrition = 30 + random.nextDouble() * 20;
+                color = ColorPalette.get(50, 50, 200 + (int)(random.nextDouble() * 55));
+                break;
+            case 3: // GRAY - dead matter
+                nutrition = 40 + random.nextDouble() * 30;
+                color = ColorPalette.get(100 + (int)(random.nextDouble() * 80), 
+                                         100 + (int)(random.nextDouble() * 80), 
+                                         100 + (int)(random.nextDouble() * 80));
+                break;
+            default:
+                nutrition = 50;
+                color = Color.WHITE;
+        }
+        
+        Food food = world.getEntityPool().obtainFood(x, y, nutrition);
+        food.setColor(color);
+        food.setFoodType(foodType);
+        food.setMass(0.5);
+        world.queueAddition(food);
+    }
+    
+    /**
+     * Environmental shift - change which food type is abundant.
+     */
+    private void environmentalShift() {
+        currentCycle++;
+        int dominantType = (currentCycle / CYCLE_LENGTH) % 3;
+        if (verbose) {
+            String[] typeNames = {"RED", "GREEN", "BLUE"};
+            System.out.println("");
+            System.out.println("=== ENVIRONMENTAL SHIFT ===");
+            System.out.println("Dominant food type: " + typeNames[dominantType]);
+            System.out.println("Specialists in this type will thrive!");
+            System.out.println("");
+        }
+        
+        SimulationEvents.EnvironmentalShift event = new SimulationEvents.EnvironmentalShift();
+        if (event.shouldCommit()) {
+            event.tick = cycles;
+            event.dominantFoodType = dominantType;
+            event.cells = world.getPopulationMetrics().getCellCount();
+            event.commit();
+        }
+    }
+    
+    /**
+     * Restore the tick and environment cycle counters saved in a checkpoint.
+     */
+    public void restoreCycleState(int cycles, int currentCycle) {
+        this.cycles = cycles;
+        this.currentCycle = currentCycle;
+    }
+    
+    /**
+     * Print the scene banner and environmental shifts (on by default; sweeps turn it off).
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+    
+    public int getCycles() { return cycles; }
+    public int getCurrentCycle() { return currentCycle; }
+    public int getCyclePhase() { return (currentCycle / CYCLE_LENGTH) % 3; }
+}
@@ -0,0 +1,109 @@
+//ENTITYPOOL.JAVA
+
+package Cells;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per-type free lists for Food and Cell so births, deaths and food spawning
+ * recycle objects instead of producing garbage every tick.
+ * Entities are returned here from SimulationWorld's removal path.
+ */
+public class EntityPool {
+    private static final int MAX_FREE_PER_TYPE = 65536;
+    
+    private final SimulationWorld world; // Owner; its RNG fills new chemistry
+    private final ArrayDeque<Food> freeFood;
+    private final ArrayDeque<Cell> freeCells;
+    
+    private long created = 0;
+    private long reused = 0;
+    
+    public EntityPool(SimulationWorld world) {
+        this.world = world;
+        this.freeFood = new ArrayDeque<>();
+        this.freeCells = new ArrayDeque<>();
+    }
+    
+    /**
+     * Get a food with random chemistry, as if built with
+     * {@code new Food(x, y, ChemicalSignature.random(), nutritionalValue)}.
+     */
+    public Food obtainFood(double x, double y, double nutritionalValue) {
+        Food food = freeFood.pollLast();
+        if (food == null) {
+            return createFood(x, y, ChemicalSignature.random(world.getRandom()), nutritionalValue);
+        }
+        
+        reused++;
+        food.getChemistry().fillRandom(world.getRandom());
+        food.reinit(x, y, nutritionalValue);
+        return food;
+    }
+    
+    /**
+     * Get a food with zeroed chemistry (dead matter dropped by cells).
+     */
+    public Food obtainDeadMatter(double x, double y, double nutritionalValue) {
+        Food food = freeFood.pollLast();
+        if (food == null) {
+            return createFood(x, y, ChemicalSignature.zeros(), nutritionalValue);
+        }
+        
+        reused++;
+        food.getChemistry().fillZeros();
+        food.reinit(x, y, nutritionalValue);
+        return food;
+    }
+    
+    /**
+     * Get a cell with random traits and preference, as if built with
+     * {@code new Cell(x, y, ChemicalSignature.random())}.
+     */
+    public Cell obtainCell(double x, double y) {
+        Cell cell = freeCells.pollLast();
+        if (cell == null) {
+            created++;
+            cell = new Cell(world, x, y, ChemicalSignature.random(world.getRandom()));
+            cell.pooled = true;
+            return cell;
+        }
+        
+        reused++;
+        cell.reinit(x, y);
+        return cell;
+    }
+    
+    /**
+     * Return an entity that has left the world.
+     * Only entities created by this pool are recycled, since they own their
+     * chemistry objects; anything else is left to the garbage collector.
+     */
+    public void release(PhysicsObj entity) {
+        if (!entity.pooled) return;
+        
+        if (entity instanceof Food) {
+            if (freeFood.size() < MAX_FREE_PER_TYPE) {
+                freeFood.addLast((Food) entity);
+            }
+        } else if (entity instanceof Cell) {
+            if (freeCells.size() < MAX_FREE_PER_TYPE) {
+                freeCells.addLast((Cell) entity);
+            }
+        }
+    }
+    
+    private Food createFood(double x, double y, ChemicalSignature chemistry, double nutritionalValue) {
+        created++;
+        Food food = new Food(x, y, chemistry, nutritionalValue);
+        food.world = world;
+        food.pooled = true;
+        return food;
+    }
+    
+    // Getters
+    public int getFreeFoodCount() { return freeFood.size(); }
+    public int getFreeCellCount() { return freeCells.size(); }
+    public long getCreatedCount() { return created; }
+    public long getReusedCount() { return reused; }
+}
@@ -6,31 +6,67 @@ import java.awt.*;
 
 /**
  * Renders detailed information tooltips with 8D chemistry.
+ * Lines are formatted into reusable char buffers and only re-measured when their
+ * text changes, so hovering an entity allocates nothing per frame (render thread only).
+ * Everything shown comes from the snapshot, including the inspected-entity details
+ * the simulation copies for the hovered entity, never from the live entity.
  */
 public class EntityTooltip {
     private static final Color TOOLTIP_BG = new Color(20, 20, 30, 230);
     private static final Color TOOLTIP_BORDER = new Color(100, 100, 150, 255);
     private static final Color TOOLTIP_TEXT = new Color(220, 220, 220);
     private static final Color TOOLTIP_HEADER = new Color(255, 200, 100);
+    private static final Color INDICATOR_COLOR = new Color(150, 150, 200, 100);
     private static final Font TOOLTIP_FONT = new Font("Monospaced", Font.PLAIN, 11);
     private static final Font TOOLTIP_HEADER_FONT = new Font("Monospaced", Font.BOLD, 12);
+    private static final BasicStroke BORDER_STROKE = new BasicStroke(2);
+    private static final BasicStroke INDICATOR_STROKE = new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                                                                        0, new float[]{5, 5}, 0);
     
     private static final int PADDING = 8;
     private static final int LINE_HEIGHT = 14;
     private static final int OFFSET_X = 15;
     private static final int OFFSET_Y = 15;
     
-    public static void draw(Graphics2D g2, PhysicsObj entity, int mouseX, int mouseY, int screenWidth, int screenHeight) {
-        String[] lines = buildTooltipContent(entity);
-        
-        FontMetrics fm = g2.getFontMetrics(TOOLTIP_FONT);
-        int maxWidth = 0;
-        for (String line : lines) {
-            maxWidth = Math.max(maxWidth, fm.stringWidth(line));
+    private static final int MAX_LINES = 16;
+    private static final int MAX_LINE_LENGTH = 64;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000};
+    
+    // Cached layout: text and measured width of each line
+    private static final char[][] lineChars = new char[MAX_LINES][MAX_LINE_LENGTH];
+    private static final int[] lineLengths = new int[MAX_LINES];
+    private static final int[] lineWidths = new int[MAX_LINES];
+    private static int lineCount = 0;
+    private static int maxLineWidth = 0;
+    private static long cachedId = -1;
+    private static FontMetrics metrics;
+    
+    // Line currently being formatted
+    private static final char[] scratch = new char[MAX_LINE_LENGTH];
+    private static int scratchLength = 0;
+    private static int buildingLine = 0;
+    private static boolean layoutChanged = false;
+    
+    // Screen area covered by the last draw, including the indicator line
+    private static final Rectangle lastBounds = new Rectangle();
+    
+    /**
+     * Draw the tooltip for entity i of the snapshot. Does nothing until the snapshot carries
+     * that entity's details (see WorldSnapshot.inspectedIndex), which lags the hover by one publish.
+     */
+    public static void draw(Graphics2D g2, Displayer displayer, WorldSnapshot snapshot, int i,
+                            int mouseX, int mouseY, int screenWidth, int screenHeight) {
+        if (snapshot.inspectedIndex != i) {
+            lastBounds.setBounds(0, 0, 0, 0);
+            return;
         }
+        if (metrics == null) {
+            metrics = g2.getFontMetrics(TOOLTIP_FONT);
+        }
+        updateLayout(snapshot, i);
         
-        int tooltipWidth = maxWidth + PADDING * 2;
-        int tooltipHeight = PADDING * 2 + LINE_HEIGHT * lines.length;
+        int tooltipWidth = maxLineWidth + PADDING * 2;
+        int tooltipHeight = PADDING * 2 + LINE_HEIGHT * lineCount;
         
         int tooltipX = mouseX + OFFSET_X;
         int tooltipY = mouseY + OFFSET_Y;
@@ -48,94 +84,287 @@ public class EntityTooltip {
         
         // Border
         g2.setColor(TOOLTIP_BORDER);
-        g2.setStroke(new BasicStroke(2));
+        g2.setStroke(BORDER_STROKE);
         g2.drawRoundRect(tooltipX, tooltipY, tooltipWidth, tooltipHeight, 8, 8);
         
         // Content
         int textX = tooltipX + PADDING;
         int textY = tooltipY + PADDING + LINE_HEIGHT - 3;
         
-        for (int i = 0; i < lines.length; i++) {
-            if (i == 0) {
-                g2.setColor(TOOLTIP_HEADER);
-                g2.setFont(TOOLTIP_HEADER_FONT);
-            } else {
-                g2.setColor(TOOLTIP_TEXT);
-                g2.setFont(TOOLTIP_FONT);
+        g2.setColor(TOOLTIP_HEADER);
+        g2.setFont(TOOLTIP_HEADER_FONT);
+        g2.drawChars(lineChars[0], 0, lineLengths[0], textX, textY);
+        
+        g2.setColor(TOOLTIP_TEXT);
+        g2.setFont(TOOLTIP_FONT);
+        for (int line = 1; line < lineCount; line++) {
+            g2.drawChars(lineChars[line], 0, lineLengths[line], textX, textY + line * LINE_HEIGHT);
+        }
+        
+        lastBounds.setBounds(tooltipX - 1, tooltipY - 1, tooltipWidth + 3, tooltipHeight + 3);
+        drawIndicatorLine(g2, displayer, snapshot, i, mouseX, mouseY, tooltipX, tooltipY, tooltipWidth, tooltipHeight);
+    }
+    
+    /**
+     * Copy the screen area covered by the last tooltip drawn into the given rectangle.
+     */
+    public static void getLastBounds(Rectangle out) {
+        out.setBounds(lastBounds);
+    }
+    
+    /**
+     * Reformat the tooltip text for an entity, re-measuring only lines whose text changed.
+     */
+    private static void updateLayout(WorldSnapshot snapshot, int i) {
+        if (snapshot.id[i] != cachedId) {
+            cachedId = snapshot.id[i];
+            lineCount = 0; // Different line set, every line counts as changed
+        }
+        
+        int previousLineCount = lineCount;
+        buildingLine = 0;
+        layoutChanged = false;
+        
+        beginLine();
+        text("=== ");
+        text(getEntityTypeName(snapshot, i));
+        text(" ===");
+        endLine();
+        
+        beginLine();
+        text("Position: (");
+        number(snapshot.x[i], 1);
+        text(", ");
+        number(snapshot.y[i], 1);
+        text(")");
+        endLine();
+        
+        beginLine();
+        text("Velocity: (");
+        number(snapshot.inspectedVelocityX, 2);
+        text(", ");
+        number(snapshot.inspectedVelocityY, 2);
+        text(")");
+        endLine();
+        
+        beginLine();
+        text("Speed: ");
+        number(Math.hypot(snapshot.inspectedVelocityX, snapshot.inspectedVelocityY), 2);
+        endLine();
+        
+        if (snapshot.kind[i] == WorldSnapshot.KIND_CELL) {
+            addCellInfo(snapshot, i);
+        } else if (snapshot.kind[i] == WorldSnapshot.KIND_FOOD) {
+            addFoodInfo(snapshot);
+        }
+        
+        lineCount = buildingLine;
+        if (layoutChanged || lineCount != previousLineCount) {
+            maxLineWidth = 0;
+            for (int line = 0; line < lineCount; line++) {
+                maxLineWidth = Math.max(maxLineWidth, lineWidths[line]);
             }
-            
-            g2.drawString(lines[i], textX, textY + i * LINE_HEIGHT);
         }
+    }
+    
+    private static void addCellInfo(WorldSnapshot snapshot, int i) {
+        label("--- Cell Data ---");
+        
+        beginLine();
+        text("Energy: ");
+        number(snapshot.inspectedEnergy, 1);
+        endLine();
+        
+        beginLine();
+        text("Age: ");
+        integer(snapshot.inspectedAge);
+        text(" ticks");
+        endLine();
         
-        drawIndicatorLine(g2, entity, mouseX, mouseY, tooltipX, tooltipY, tooltipWidth, tooltipHeight);
+        beginLine();
+        text("Size: ");
+        number(snapshot.size[i] / 25.0, 2);
+        endLine();
+        
+        label("--- Food Preferences ---");
+        efficiencyLine("Red: ", snapshot.inspectedRedEfficiency);
+        efficiencyLine("Green: ", snapshot.inspectedGreenEfficiency);
+        efficiencyLine("Blue: ", snapshot.inspectedBlueEfficiency);
+        
+        label("--- Traits ---");
+        
+        beginLine();
+        text("Speed: ");
+        number(snapshot.inspectedMaxSpeed, 0);
+        endLine();
+        
+        beginLine();
+        text("Sense: ");
+        number(snapshot.inspectedSenseRange, 0);
+        endLine();
+        
+        beginLine();
+        text("Predator: ");
+        text(snapshot.inspectedPredator ? "YES" : "NO");
+        endLine();
     }
     
-    private static String[] buildTooltipContent(PhysicsObj entity) {
-        String entityType = getEntityTypeName(entity);
-        java.util.List<String> lines = new java.util.ArrayList<>();
+    private static void addFoodInfo(WorldSnapshot snapshot) {
+        label("--- Food Data ---");
+        
+        beginLine();
+        text("Nutrition: ");
+        number(snapshot.inspectedNutrition, 1);
+        endLine();
+        
+        beginLine();
+        text("Type: ");
+        text(snapshot.inspectedWaste ? "WASTE" : "Food");
+        endLine();
+        
+        label("--- Chemistry (8D) ---");
+        double[] chem = snapshot.inspectedChemistry;
         
-        lines.add("=== " + entityType + " ===");
-        lines.add(String.format("Position: (%.1f, %.1f)", entity.getX(), entity.getY()));
-        lines.add(String.format("Velocity: (%.2f, %.2f)", entity.getVelocityX(), entity.getVelocityY()));
-        lines.add(String.format("Speed: %.2f", entity.getSpeed()));
+        beginLine();
+        text("[");
+        for (int i = 0; i < 4; i++) {
+            if (i > 0) text(" ");
+            number(chem[i], 2);
+        }
+        endLine();
         
-        if (entity instanceof Cell) {
-            addCellInfo(lines, (Cell) entity);
-        } else if (entity instanceof Food) {
-            addFoodInfo(lines, (Food) entity);
+        beginLine();
+        for (int i = 4; i < 8; i++) {
+            text(" ");
+            number(chem[i], 2);
+        }
+        text("]");
+        endLine();
+    }
+    
+    private static void efficiencyLine(String color, double efficiency) {
+        beginLine();
+        text(color);
+        number(efficiency * 100, 0);
+        text("% efficient");
+        endLine();
+    }
+    
+    private static void label(String text) {
+        beginLine();
+        text(text);
+        endLine();
+    }
+    
+    // === Line formatting ===
+    
+    private static void beginLine() {
+        scratchLength = 0;
+    }
+    
+    /**
+     * Commit the scratch line, re-measuring it only if its text differs from the cached line.
+     */
+    private static void endLine() {
+        if (buildingLine == MAX_LINES) return;
+        
+        int line = buildingLine++;
+        char[] cached = lineChars[line];
+        if (line < lineCount && lineLengths[line] == scratchLength && regionEquals(cached, scratch, scratchLength)) {
+            return;
         }
         
-        return lines.toArray(new String[0]);
+        System.arraycopy(scratch, 0, cached, 0, scratchLength);
+        lineLengths[line] = scratchLength;
+        lineWidths[line] = metrics.charsWidth(cached, 0, scratchLength);
+        layoutChanged = true;
     }
     
-private static void addCellInfo(java.util.List<String> lines, Cell cell) {
-    lines.add("--- Cell Data ---");
-    lines.add(String.format("Energy: %.1f", cell.getEnergy()));
-    lines.add(String.format("Age: %d ticks", cell.getAge()));
-    lines.add(String.format("Size: %.2f", cell.getSize() / 25.0));
+    private static boolean regionEquals(char[] a, char[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) return false;
+        }
+        return true;
+    }
     
-    lines.add("--- Food Preferences ---");
-    lines.add(String.format("Red: %.0f%% efficient", cell.getRedEfficiency() * 100));
-    lines.add(String.format("Green: %.0f%% efficient", cell.getGreenEfficiency() * 100));
-    lines.add(String.format("Blue: %.0f%% efficient", cell.getBlueEfficiency() * 100));
+    private static void put(char c) {
+        if (scratchLength < MAX_LINE_LENGTH) {
+            scratch[scratchLength++] = c;
+        }
+    }
     
-    lines.add("--- Traits ---");
-    lines.add(String.format("Speed: %.0f", cell.getMaxSpeed()));
-    lines.add(String.format("Sense: %.0f", cell.getSenseRange()));
-    lines.add(String.format("Predator: %s", cell.isPredator() ? "YES" : "NO"));
-}
+    private static void text(String text) {
+        int length = Math.min(text.length(), MAX_LINE_LENGTH - scratchLength);
+        text.getChars(0, length, scratch, scratchLength);
+        scratchLength += length;
+    }
     
-    private static void addFoodInfo(java.util.List<String> lines, Food food) {
-        lines.add("--- Food Data ---");
-        lines.add(String.format("Nutrition: %.1f", food.getNutritionalValue()));
-        lines.add(String.format("Type: %s", food.isWaste() ? "WASTE" : "Food"));
+    private static void integer(long value) {
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
         
-        lines.add("--- Chemistry (8D) ---");
-        ChemicalSignature chem = food.getChemistry();
-        lines.add(String.format("[%.2f %.2f %.2f %.2f", chem.get(0), chem.get(1), chem.get(2), chem.get(3)));
-        lines.add(String.format(" %.2f %.2f %.2f %.2f]", chem.get(4), chem.get(5), chem.get(6), chem.get(7)));
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        if (scratchLength + digits > MAX_LINE_LENGTH) return;
+        
+        for (int i = scratchLength + digits - 1; i >= scratchLength; i--) {
+            scratch[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        scratchLength += digits;
     }
     
-    private static String getEntityTypeName(PhysicsObj entity) {
-        if (entity instanceof Cell) {
+    /**
+     * Fixed-point formatting, equivalent to String.format("%.Nf") for the values shown here.
+     */
+    private static void number(double value, int decimals) {
+        if (Double.isNaN(value)) {
+            text("NaN");
+            return;
+        }
+        if (Double.isInfinite(value)) {
+            text(value > 0 ? "Infinity" : "-Infinity");
+            return;
+        }
+        
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(value * scale);
+        integer(scaled / scale);
+        
+        if (decimals > 0) {
+            put('.');
+            long fraction = scaled % scale;
+            for (long digit = scale / 10; digit > 0; digit /= 10) {
+                put((char) ('0' + fraction / digit % 10));
+            }
+        }
+    }
+    
+    private static String getEntityTypeName(WorldSnapshot snapshot, int i) {
+        if (snapshot.kind[i] == WorldSnapshot.KIND_CELL) {
             return "Cell";
-        } else if (entity instanceof Food) {
-            Food food = (Food) entity;
-            return food.isWaste() ? "Waste" : "Food";
+        } else if (snapshot.kind[i] == WorldSnapshot.KIND_FOOD) {
+            return snapshot.inspectedWaste ? "Waste" : "Food";
         } else {
             return "Entity";
         }
     }
     
-    private static void drawIndicatorLine(Graphics2D g2, PhysicsObj entity, 
+    private static void drawIndicatorLine(Graphics2D g2, Displayer displayer, WorldSnapshot snapshot, int i,
                                           int mouseX, int mouseY,
-                                          int tooltipX, int tooltipY, 
+                                          int tooltipX, int tooltipY,
                                           int tooltipWidth, int tooltipHeight) {
-        SimulationWorld world = SimulationWorld.getInstance();
-        Displayer displayer = world.getDisplayer();
-        
-        double screenX = displayer.worldToScreenX(entity.getX());
-        double screenY = displayer.worldToScreenY(entity.getY());
+        double screenX = displayer.worldToScreenX(snapshot.x[i]);
+        double screenY = displayer.worldToScreenY(snapshot.y[i]);
         
         double distToMouse = Math.hypot(screenX - mouseX, screenY - mouseY);
         if (distToMouse < 30) return;
@@ -143,9 +372,10 @@ private static void addCellInfo(java.util.List<String> lines, Cell cell) {
         int lineStartX = tooltipX + tooltipWidth / 2;
         int lineStartY = tooltipY;
         
-        g2.setColor(new Color(150, 150, 200, 100));
-        g2.setStroke(new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
-                                     0, new float[]{5, 5}, 0));
+        g2.setColor(INDICATOR_COLOR);
+        g2.setStroke(INDICATOR_STROKE);
         g2.drawLine(lineStartX, lineStartY, (int) screenX, (int) screenY);
+        lastBounds.add(Math.min(lineStartX, (int) screenX) - 1, Math.min(lineStartY, (int) screenY) - 1);
+        lastBounds.add(Math.max(lineStartX, (int) screenX) + 2, Math.max(lineStartY, (int) screenY) + 2);
     }
-}
\ No newline at end of file
+}
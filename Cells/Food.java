@@ -3,6 +3,7 @@
 package Cells;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 
 /**
  * Food with discrete color-based types.
@@ -30,22 +31,34 @@ public class Food extends PhysicsObj {
         this.gradientSource = new GradientSource(x, y, nutritionalValue, this, chemistry);
     }
     
+    /**
+     * Reset this food to a freshly constructed state for reuse from the EntityPool.
+     * Keeps the current chemistry object; refill it before calling this.
+     */
+    public void reinit(double x, double y, double nutritionalValue) {
+        resetPhysics(x, y);
+        this.nutritionalValue = nutritionalValue;
+        this.foodType = 0;
+        
+        setSize(4);
+        this.lastX = x;
+        this.lastY = y;
+        
+        gradientSource.reset(x, y, nutritionalValue, this, chemistry);
+    }
+    
     @Override
     protected void onAddedToWorld() {
-        SimulationWorld world = SimulationWorld.getInstance();
         world.getMultiChannelField().addSource(gradientSource);
     }
     
     @Override
     protected void onRemovedFromWorld() {
-        SimulationWorld world = SimulationWorld.getInstance();
         world.getMultiChannelField().removeSource(gradientSource);
     }
     
     @Override
     protected void onUpdate() {
-        SimulationWorld world = SimulationWorld.getInstance();
-        
         // Update gradient source position if moved
         if (Math.abs(getX() - lastX) > 0.1 || Math.abs(getY() - lastY) > 0.1) {
             gradientSource.updatePosition(getX(), getY());
@@ -56,6 +69,45 @@ public class Food extends PhysicsObj {
         }
     }
     
+    /**
+     * Bytes written by writeState.
+     */
+    public static final int STATE_BYTES = 8 + 4 + 8 * 2 + 8 * ChemicalSignature.DIMENSIONS;
+    
+    /**
+     * Write the food-specific state (physics is saved separately by WorldCheckpoint).
+     */
+    void writeState(ByteBuffer out) {
+        out.putDouble(nutritionalValue);
+        out.putInt(foodType);
+        out.putDouble(lastX);
+        out.putDouble(lastY);
+        for (int i = 0; i < ChemicalSignature.DIMENSIONS; i++) {
+            out.putDouble(chemistry.get(i));
+        }
+    }
+    
+    /**
+     * Read state written by writeState, keeping the gradient source in step.
+     */
+    void readState(ByteBuffer in) {
+        setNutritionalValue(in.getDouble());
+        this.foodType = in.getInt();
+        this.lastX = in.getDouble();
+        this.lastY = in.getDouble();
+        for (int i = 0; i < ChemicalSignature.DIMENSIONS; i++) {
+            chemistry.set(i, in.getDouble());
+        }
+        
+        double oldX = gradientSource.x;
+        double oldY = gradientSource.y;
+        gradientSource.updatePosition(lastX, lastY);
+        gradientSource.updateChemistry(chemistry);
+        if (worldIndex >= 0) {
+            world.getMultiChannelField().updateSource(gradientSource, oldX, oldY);
+        }
+    }
+    
     // Getters
     public double getNutritionalValue() { return nutritionalValue; }
     public ChemicalSignature getChemistry() { return chemistry; }
@@ -66,17 +118,22 @@ public class Food extends PhysicsObj {
     public void setNutritionalValue(double value) {
         this.nutritionalValue = Math.max(0, value);
         gradientSource.strength = nutritionalValue;
+        checkpointDirty = true;
     }
     
     public void setIsWaste(boolean isWaste) {
         if (isWaste) {
-            this.foodType = 3;
+            setFoodType(3);
             setSize(5);
         }
     }
     
     public void setFoodType(int type) {
+        PopulationMetrics metrics = worldIndex >= 0 ? world.getPopulationMetrics() : null;
+        if (metrics != null) metrics.untrack(this);
         this.foodType = type;
+        checkpointDirty = true;
+        if (metrics != null) metrics.track(this);
     }
     
     @Override
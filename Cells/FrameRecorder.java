@@ -0,0 +1,189 @@
+//FRAMERECORDER.JAVA
+
+package Cells;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.imageio.ImageIO;
+
+/**
+ * Streams rendered frames to disk on a background encoder thread.
+ * Frames are copied into a small fixed pool and handed over through a bounded queue,
+ * so memory use is constant no matter how long the recording runs. When the encoder
+ * falls behind and the pool is empty, frames are dropped rather than stalling the renderer.
+ */
+public class FrameRecorder {
+    public enum Format {
+        PNG_SEQUENCE, // frame_000000.png, frame_000001.png, ...
+        RAW_RGBA      // frames.rgba, width * height * 4 bytes per frame, described by frames.txt
+    }
+    
+    private static final int POOL_SIZE = 8;
+    
+    private final Format format;
+    private final File directory;
+    private final int width;
+    private final int height;
+    
+    private final BlockingQueue<Frame> freeFrames = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Frame> pendingFrames = new ArrayBlockingQueue<>(POOL_SIZE + 1);
+    private final Frame stopMarker = new Frame(null);
+    private final Thread encoder;
+    
+    // Raw stream output, encoder thread only
+    private FileChannel rawChannel;
+    private ByteBuffer rawBuffer;
+    
+    private volatile boolean recording = true;
+    private volatile int framesCaptured = 0;
+    private volatile int framesWritten = 0;
+    private volatile int framesDropped = 0;
+    
+    /**
+     * Pooled frame: an RGB image whose pixel array receives copies of the display buffer.
+     */
+    private static class Frame {
+        final BufferedImage image;
+        final int[] pixels;
+        int number;
+        
+        Frame(BufferedImage image) {
+            this.image = image;
+            this.pixels = image != null ? ((DataBufferInt) image.getRaster().getDataBuffer()).getData() : null;
+        }
+    }
+    
+    /**
+     * Start recording frames of the given size into a directory (created if missing).
+     */
+    public FrameRecorder(File directory, int width, int height, Format format) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create recording directory " + directory);
+        }
+        
+        this.format = format;
+        this.directory = directory;
+        this.width = width;
+        this.height = height;
+        
+        for (int i = 0; i < POOL_SIZE; i++) {
+            freeFrames.add(new Frame(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)));
+        }
+        
+        if (format == Format.RAW_RGBA) {
+            rawChannel = new FileOutputStream(new File(directory, "frames.rgba")).getChannel();
+            rawBuffer = ByteBuffer.allocateDirect(width * height * 4);
+        }
+        
+        this.encoder = new Thread(this::runEncoder, "FrameRecorder");
+        encoder.setDaemon(true);
+        encoder.setPriority(Thread.MIN_PRIORITY);
+        encoder.start();
+    }
+    
+    /**
+     * Queue a copy of a finished frame (render thread). Never blocks.
+     *
+     * @param pixels ARGB pixels, row-major, width * height long
+     */
+    public void capture(int[] pixels) {
+        if (!recording) return;
+        
+        Frame frame = freeFrames.poll();
+        if (frame == null) {
+            framesDropped++;
+            return;
+        }
+        
+        System.arraycopy(pixels, 0, frame.pixels, 0, width * height);
+        frame.number = framesCaptured++;
+        pendingFrames.add(frame);
+    }
+    
+    /**
+     * Stop accepting frames and let the encoder finish the queued ones in the background.
+     */
+    public void stop() {
+        if (!recording) return;
+        recording = false;
+        pendingFrames.add(stopMarker);
+    }
+    
+    private void runEncoder() {
+        try {
+            while (true) {
+                Frame frame = pendingFrames.take();
+                if (frame == stopMarker) break;
+                
+                if (format == Format.PNG_SEQUENCE) {
+                    ImageIO.write(frame.image, "png", new File(directory, String.format("frame_%06d.png", frame.number)));
+                } else {
+                    writeRaw(frame.pixels);
+                }
+                framesWritten++;
+                freeFrames.add(frame);
+            }
+        } catch (IOException e) {
+            System.out.println("Recording failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            recording = false;
+            close();
+        }
+    }
+    
+    /**
+     * Append one frame to the raw stream, converting ARGB ints to R, G, B, A bytes.
+     */
+    private void writeRaw(int[] pixels) throws IOException {
+        rawBuffer.clear();
+        int n = width * height;
+        for (int i = 0; i < n; i++) {
+            int argb = pixels[i];
+            rawBuffer.putInt((argb << 8) | 0xFF); // RGB ints carry no alpha, frames are opaque
+        }
+        rawBuffer.flip();
+        while (rawBuffer.hasRemaining()) {
+            rawChannel.write(rawBuffer);
+        }
+    }
+    
+    private void close() {
+        if (rawChannel != null) {
+            try {
+                rawChannel.close();
+            } catch (IOException e) {
+                System.out.println("Recording failed: " + e.getMessage());
+            }
+            
+            try (PrintWriter info = new PrintWriter(new File(directory, "frames.txt"))) {
+                info.println("format=rgba");
+                info.println("width=" + width);
+                info.println("height=" + height);
+                info.println("frames=" + framesWritten);
+            } catch (IOException e) {
+                System.out.println("Recording failed: " + e.getMessage());
+            }
+        }
+        
+        System.out.println(String.format("Recording finished: %d frames written, %d dropped -> %s",
+            framesWritten, framesDropped, directory));
+    }
+    
+    // Getters
+    public boolean isRecording() { return recording; }
+    public Format getFormat() { return format; }
+    public File getDirectory() { return directory; }
+    public int getFramesCaptured() { return framesCaptured; }
+    public int getFramesWritten() { return framesWritten; }
+    public int getFramesDropped() { return framesDropped; }
+}
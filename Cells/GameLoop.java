@@ -0,0 +1,176 @@
+//GAMELOOP.JAVA
+
+package Cells;
+
+/**
+ * Scheduler that decouples simulation ticks from rendering.
+ * The simulation thread runs ticks on a fixed timestep using an accumulator,
+ * and the render thread draws at a separately capped frame rate. Renders are
+ * skipped while the simulation is behind, and in max speed mode the
+ * simulation ticks as fast as it can with several ticks per rendered frame.
+ */
+public class GameLoop {
+    private static final int MAX_CATCH_UP_TICKS = 10;      // Ticks per loop before we declare ourselves behind
+    private static final long MAX_SKIPPED_RENDER_NANOS = 250_000_000L; // Always render at least 4 fps
+    private static final long STATS_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final SimulationWorld world;
+    private final Runnable tick;
+    private final Runnable renderFrame;
+
+    private volatile double tickRate;
+    private volatile int maxRenderFps;
+    private volatile boolean maxSpeed = false;
+    private volatile boolean behind = false;
+
+    // Counters reported once per second
+    private volatile double ticksPerSecond = 0;
+    private volatile double framesPerSecond = 0;
+
+    /**
+     * @param world The world whose tick lock is held around each tick
+     * @param tick One simulation tick (update, spawning, pending changes, snapshot)
+     * @param renderFrame One rendered frame (input polling and drawing)
+     * @param tickRate Fixed simulation rate in ticks per second
+     * @param maxRenderFps Render rate cap in frames per second
+     */
+    public GameLoop(SimulationWorld world, Runnable tick, Runnable renderFrame, double tickRate, int maxRenderFps) {
+        this.world = world;
+        this.tick = tick;
+        this.renderFrame = renderFrame;
+        this.tickRate = tickRate;
+        this.maxRenderFps = maxRenderFps;
+    }
+
+    /**
+     * Start the render thread and run the simulation loop on the calling thread (never returns).
+     */
+    public void run() {
+        Thread renderThread = new Thread(this::runRenderLoop, "Renderer");
+        renderThread.setDaemon(true);
+        renderThread.start();
+
+        runSimulationLoop();
+    }
+
+    private void runSimulationLoop() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        long statsStart = previous;
+        int ticks = 0;
+
+        while (true) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            if (maxSpeed && !world.isPaused()) {
+                // No timestep: tick back to back, the renderer samples whatever is newest
+                runTick();
+                ticks++;
+                accumulator = 0;
+                behind = false;
+            } else {
+                long step = getTickNanos();
+                int ticksThisLoop = 0;
+
+                while (accumulator >= step && ticksThisLoop < MAX_CATCH_UP_TICKS) {
+                    runTick();
+                    ticks++;
+                    ticksThisLoop++;
+                    accumulator -= step;
+                }
+
+                // Too far behind to catch up: drop the backlog instead of spiralling
+                behind = accumulator >= step;
+                if (ticksThisLoop == MAX_CATCH_UP_TICKS) {
+                    accumulator = Math.min(accumulator, step);
+                }
+
+                if (!behind) {
+                    sleepNanos(step - accumulator);
+                }
+            }
+
+            if (now - statsStart >= STATS_INTERVAL_NANOS) {
+                ticksPerSecond = ticks * 1e9 / (now - statsStart);
+                ticks = 0;
+                statsStart = now;
+            }
+        }
+    }
+
+    private void runTick() {
+        world.getTickLock().lock();
+        try {
+            tick.run();
+        } finally {
+            world.getTickLock().unlock();
+        }
+    }
+
+    private void runRenderLoop() {
+        long lastRender = System.nanoTime();
+        long statsStart = lastRender;
+        int frames = 0;
+
+        while (true) {
+            long frameStart = System.nanoTime();
+
+            // Give the simulation the CPU while it is behind, but never freeze the display
+            if (behind && frameStart - lastRender < MAX_SKIPPED_RENDER_NANOS) {
+                sleepNanos(1_000_000L);
+                continue;
+            }
+
+            renderFrame.run();
+            frames++;
+            lastRender = frameStart;
+
+            long now = System.nanoTime();
+            if (now - statsStart >= STATS_INTERVAL_NANOS) {
+                framesPerSecond = frames * 1e9 / (now - statsStart);
+                frames = 0;
+                statsStart = now;
+            }
+
+            long frameNanos = 1_000_000_000L / maxRenderFps;
+            sleepNanos(frameNanos - (now - frameStart));
+        }
+    }
+
+    private long getTickNanos() {
+        return (long) (1_000_000_000L / tickRate);
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) return;
+        try {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Getters
+    public double getTickRate() { return tickRate; }
+    public int getMaxRenderFps() { return maxRenderFps; }
+    public boolean isMaxSpeed() { return maxSpeed; }
+    public boolean isBehind() { return behind; }
+    public double getTicksPerSecond() { return ticksPerSecond; }
+    public double getFramesPerSecond() { return framesPerSecond; }
+
+    // Setters
+    public void setTickRate(double tickRate) {
+        this.tickRate = Math.max(1.0, Math.min(1000.0, tickRate));
+    }
+
+    public void setMaxRenderFps(int maxRenderFps) {
+        this.maxRenderFps = Math.max(1, Math.min(240, maxRenderFps));
+    }
+
+    public void toggleMaxSpeed() {
+        maxSpeed = !maxSpeed;
+        System.out.println("Simulation speed: " + (maxSpeed ? "MAX" : String.format("%.0f ticks/s", tickRate)));
+    }
+}
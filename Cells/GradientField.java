@@ -22,6 +22,9 @@ public class GradientField {
     private final double maxInfluenceRadius;
     private final double falloffExponent;
     
+    // Bumped on every change so renderers can tell when cached samples are stale
+    private volatile long version = 0;
+    
     /**
      * Create a new gradient field.
      * 
@@ -49,6 +52,7 @@ public class GradientField {
     public void addSource(GradientSource source) {
         int hash = getHash(source.x, source.y);
         spatialHash.computeIfAbsent(hash, k -> new ArrayList<>()).add(source);
+        version++;
     }
     
     /**
@@ -63,6 +67,7 @@ public class GradientField {
                 spatialHash.remove(hash);
             }
         }
+        version++;
     }
     
     /**
@@ -85,6 +90,7 @@ public class GradientField {
             // Add to new cell
             spatialHash.computeIfAbsent(newHash, k -> new ArrayList<>()).add(source);
         }
+        version++;
     }
     
     /**
@@ -92,6 +98,7 @@ public class GradientField {
      */
     public void clear() {
         spatialHash.clear();
+        version++;
     }
     
     /**
@@ -185,4 +192,10 @@ public class GradientField {
     public int getGridWidth() { return gridWidth; }
     public int getGridHeight() { return gridHeight; }
     public int getCellSize() { return cellSize; }
+    public long getVersion() { return version; }
+    
+    /**
+     * Every non-empty bucket of sources. Live views, callers must not modify them.
+     */
+    public Collection<List<GradientSource>> getSourceBuckets() { return spatialHash.values(); }
 }
\ No newline at end of file
@@ -0,0 +1,211 @@
+//GRADIENTOVERLAY.JAVA
+
+package Cells;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Cached gradient field visualization.
+ * Tiles are written into a low-resolution image (one pixel per tile) in a single pass
+ * and scaled up with one drawImage; direction arrows are batched into a few paths.
+ * Both are composed into a screen-sized image that is only rebuilt when the camera
+ * moves or the field changes, so a normal frame is a single blit.
+ */
+public class GradientOverlay {
+    private static final long FIELD_REFRESH_NANOS = 200_000_000L; // Field-only changes refresh at most 5x/s
+    private static final int ARROW_LEVELS = 8; // Arrow alpha is quantized so arrows batch by color
+    private static final int ARROW_HEAD_SIZE = 3;
+    private static final double COS_30 = Math.cos(Math.PI / 6);
+    private static final double SIN_30 = Math.sin(Math.PI / 6);
+    private static final BasicStroke ARROW_STROKE = new BasicStroke(1.5f);
+    private static final Color[] ARROW_COLORS = new Color[ARROW_LEVELS];
+    
+    static {
+        for (int level = 0; level < ARROW_LEVELS; level++) {
+            ARROW_COLORS[level] = new Color(1f, 1f, 1f, levelIntensity(level) * 0.5f);
+        }
+    }
+    
+    private final int resolution;
+    
+    private BufferedImage tiles;
+    private int[] tilePixels;
+    private BufferedImage overlay;
+    private final Path2D.Float[] arrowLines = new Path2D.Float[ARROW_LEVELS];
+    private final Path2D.Float[] arrowHeads = new Path2D.Float[ARROW_LEVELS];
+    
+    // Cache key
+    private boolean valid = false;
+    private double cachedCameraX;
+    private double cachedCameraY;
+    private double cachedZoom;
+    private long cachedFieldVersion;
+    private long lastBuildTime;
+    
+    public GradientOverlay(int resolution) {
+        this.resolution = resolution;
+        for (int level = 0; level < ARROW_LEVELS; level++) {
+            arrowLines[level] = new Path2D.Float();
+            arrowHeads[level] = new Path2D.Float();
+        }
+    }
+    
+    /**
+     * Rebuild the overlay if the camera or field changed.
+     *
+     * @return true if the overlay image changed
+     */
+    public boolean update(Displayer displayer, SimulationWorld world, int screenWidth, int screenHeight) {
+        if (!needsRebuild(displayer, world, screenWidth, screenHeight)) {
+            return false;
+        }
+        
+        world.getTickLock().lock();
+        try {
+            rebuild(displayer, world.getMultiChannelField(), screenWidth, screenHeight);
+        } finally {
+            world.getTickLock().unlock();
+        }
+        compose(screenWidth, screenHeight);
+        return true;
+    }
+    
+    /**
+     * Draw the overlay as built by the last update (respects the current clip).
+     */
+    public void draw(Graphics2D g2) {
+        g2.drawImage(overlay, 0, 0, null);
+    }
+    
+    /**
+     * Force a rebuild on the next draw.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+    
+    private boolean needsRebuild(Displayer displayer, SimulationWorld world, int screenWidth, int screenHeight) {
+        if (!valid || overlay == null || overlay.getWidth() != screenWidth || overlay.getHeight() != screenHeight) {
+            return true;
+        }
+        
+        if (displayer.cameraX != cachedCameraX || displayer.cameraY != cachedCameraY || displayer.zoom != cachedZoom) {
+            return true;
+        }
+        
+        long fieldVersion = world.getMultiChannelField().getGlobalGradientField().getVersion();
+        return fieldVersion != cachedFieldVersion && System.nanoTime() - lastBuildTime >= FIELD_REFRESH_NANOS;
+    }
+    
+    /**
+     * Draw the scaled tiles and the arrow batches into the cached overlay image.
+     */
+    private void compose(int screenWidth, int screenHeight) {
+        if (overlay == null || overlay.getWidth() != screenWidth || overlay.getHeight() != screenHeight) {
+            overlay = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_ARGB);
+        }
+        
+        Graphics2D g = overlay.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        // Nearest neighbour keeps the hard tile edges of the original per-tile fillRect
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(tiles, 0, 0, tiles.getWidth() * resolution, tiles.getHeight() * resolution, null);
+        
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setStroke(ARROW_STROKE);
+        for (int level = 0; level < ARROW_LEVELS; level++) {
+            g.setColor(ARROW_COLORS[level]);
+            g.draw(arrowLines[level]);
+            g.fill(arrowHeads[level]);
+        }
+        g.dispose();
+    }
+    
+    private void rebuild(Displayer displayer, MultiChannelGradientField multiField, int screenWidth, int screenHeight) {
+        int columns = (screenWidth + resolution - 1) / resolution;
+        int rows = (screenHeight + resolution - 1) / resolution;
+        if (tiles == null || tiles.getWidth() != columns || tiles.getHeight() != rows) {
+            tiles = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_ARGB);
+            tilePixels = ((DataBufferInt) tiles.getRaster().getDataBuffer()).getData();
+        }
+        
+        for (int level = 0; level < ARROW_LEVELS; level++) {
+            arrowLines[level].reset();
+            arrowHeads[level].reset();
+        }
+        
+        boolean drawArrows = displayer.zoom > 0.5;
+        int arrowLength = (int)(resolution * 0.4);
+        
+        for (int row = 0; row < rows; row++) {
+            int screenY = row * resolution;
+            double worldY = displayer.screenToWorldY(screenY);
+            
+            for (int column = 0; column < columns; column++) {
+                int screenX = column * resolution;
+                
+                // Sample gradient field
+                GradientSample sample = multiField.sampleAll(displayer.screenToWorldX(screenX), worldY);
+                float intensity = (float)Math.min(1.0, sample.strength / 100.0);
+                
+                if (intensity <= 0.05f) {
+                    tilePixels[row * columns + column] = 0;
+                    continue;
+                }
+                
+                // Visualize as white gradient
+                int gray = Math.round(intensity * 255);
+                int alpha = Math.round(intensity * 0.3f * 255);
+                tilePixels[row * columns + column] = (alpha << 24) | (gray << 16) | (gray << 8) | gray;
+                
+                // Direction arrow for strong gradients
+                if (drawArrows && intensity > 0.3f) {
+                    addArrow(screenX + resolution / 2, screenY + resolution / 2,
+                             sample.directionX, sample.directionY, arrowLength, intensity);
+                }
+            }
+        }
+        
+        valid = true;
+        cachedCameraX = displayer.cameraX;
+        cachedCameraY = displayer.cameraY;
+        cachedZoom = displayer.zoom;
+        cachedFieldVersion = multiField.getGlobalGradientField().getVersion();
+        lastBuildTime = System.nanoTime();
+    }
+    
+    /**
+     * Append one arrow to the batch for its intensity level.
+     * The head is rotated from the unit direction directly, so no trig per arrow.
+     */
+    private void addArrow(int x, int y, double dirX, double dirY, int arrowLength, float intensity) {
+        int level = Math.min(ARROW_LEVELS - 1, (int)((intensity - 0.3f) / 0.7f * ARROW_LEVELS));
+        
+        int endX = x + (int)(dirX * arrowLength);
+        int endY = y + (int)(dirY * arrowLength);
+        
+        Path2D.Float lines = arrowLines[level];
+        lines.moveTo(x, y);
+        lines.lineTo(endX, endY);
+        
+        // Directions rotated by -30 and +30 degrees
+        double leftX = dirX * COS_30 + dirY * SIN_30;
+        double leftY = dirY * COS_30 - dirX * SIN_30;
+        double rightX = dirX * COS_30 - dirY * SIN_30;
+        double rightY = dirY * COS_30 + dirX * SIN_30;
+        
+        Path2D.Float heads = arrowHeads[level];
+        heads.moveTo(endX, endY);
+        heads.lineTo(endX - (int)(ARROW_HEAD_SIZE * leftX), endY - (int)(ARROW_HEAD_SIZE * leftY));
+        heads.lineTo(endX - (int)(ARROW_HEAD_SIZE * rightX), endY - (int)(ARROW_HEAD_SIZE * rightY));
+        heads.closePath();
+    }
+    
+    private static float levelIntensity(int level) {
+        return 0.3f + 0.7f * (level + 0.5f) / ARROW_LEVELS;
+    }
+}
@@ -13,20 +13,24 @@ public class GradientSource {
     public PhysicsObj entity;
     public ChemicalSignature chemistry; // 8D signature
     public double[] emissionBias; // How strongly this source emits in each dimension
+    boolean inField; // Registered with a MultiChannelGradientField, which checks this instead of a set
     
     public GradientSource(double x, double y, double strength, PhysicsObj entity, ChemicalSignature chemistry) {
+        this.emissionBias = new double[ChemicalSignature.DIMENSIONS];
+        reset(x, y, strength, entity, chemistry);
+    }
+    
+    /**
+     * Reinitialize this source in place (used when its entity is recycled).
+     */
+    public void reset(double x, double y, double strength, PhysicsObj entity, ChemicalSignature chemistry) {
         this.x = x;
         this.y = y;
         this.strength = strength;
         this.entity = entity;
-        this.chemistry = chemistry;
         
         // Emission bias - sources emit more strongly in dimensions where they're high
-        this.emissionBias = new double[ChemicalSignature.DIMENSIONS];
-        for (int i = 0; i < ChemicalSignature.DIMENSIONS; i++) {
-            // Non-linear: emphasize high values
-            this.emissionBias[i] = Math.pow(chemistry.get(i), 1.5);
-        }
+        updateChemistry(chemistry);
     }
     
     /**
@@ -59,6 +63,7 @@ public class GradientSource {
     public void updateChemistry(ChemicalSignature newChemistry) {
         this.chemistry = newChemistry;
         for (int i = 0; i < ChemicalSignature.DIMENSIONS; i++) {
+            // Non-linear: emphasize high values
             this.emissionBias[i] = Math.pow(newChemistry.get(i), 1.5);
         }
     }
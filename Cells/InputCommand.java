@@ -0,0 +1,131 @@
+//INPUTCOMMAND.JAVA
+
+package Cells;
+
+import java.awt.Color;
+import java.util.List;
+
+/**
+ * One external input that changes the simulation (as opposed to the camera or the display).
+ * Inputs are not applied where they happen; they go through the InputJournal and are applied
+ * between ticks, so a recorded run can be replayed exactly.
+ */
+public class InputCommand {
+    public enum Type {
+        TOGGLE_PAUSE,
+        SCALE_TIME_STEP,  // a = factor
+        ADD_FOOD,         // a = count
+        REMOVE_ENTITIES,  // a = count
+        CLEAR_ENTITIES,
+        SPAWN_CELL,       // a, b = world position
+        SPAWN_FOOD        // a, b = world position
+    }
+    
+    private final Type type;
+    private final double a;
+    private final double b;
+    
+    InputCommand(Type type, double a, double b) {
+        this.type = type;
+        this.a = a;
+        this.b = b;
+    }
+    
+    public static InputCommand togglePause() { return new InputCommand(Type.TOGGLE_PAUSE, 0, 0); }
+    public static InputCommand scaleTimeStep(double factor) { return new InputCommand(Type.SCALE_TIME_STEP, factor, 0); }
+    public static InputCommand addFood(int count) { return new InputCommand(Type.ADD_FOOD, count, 0); }
+    public static InputCommand removeEntities(int count) { return new InputCommand(Type.REMOVE_ENTITIES, count, 0); }
+    public static InputCommand clearEntities() { return new InputCommand(Type.CLEAR_ENTITIES, 0, 0); }
+    public static InputCommand spawnCell(double x, double y) { return new InputCommand(Type.SPAWN_CELL, x, y); }
+    public static InputCommand spawnFood(double x, double y) { return new InputCommand(Type.SPAWN_FOOD, x, y); }
+    
+    public Type getType() { return type; }
+    public double getA() { return a; }
+    public double getB() { return b; }
+    
+    /**
+     * Apply this input to the world. Called on the simulation thread between ticks.
+     */
+    void apply(SimulationWorld world) {
+        switch (type) {
+            case TOGGLE_PAUSE:
+                world.setPaused(!world.isPaused());
+                System.out.println(world.isPaused() ? "PAUSED" : "RUNNING");
+                break;
+            
+            case SCALE_TIME_STEP:
+                double newDt = world.getTimeStep() * a;
+                world.setTimeStep(newDt);
+                System.out.printf("Time step: %.3f\n", newDt);
+                break;
+            
+            case ADD_FOOD:
+                addFood(world, (int) a);
+                break;
+            
+            case REMOVE_ENTITIES:
+                removeEntities(world, (int) a);
+                break;
+            
+            case CLEAR_ENTITIES:
+                for (PhysicsObj entity : world.getEntities()) {
+                    if (!entity.isStatic()) {
+                        entity.destroy();
+                    }
+                }
+                System.out.println("Cleared all non-static entities");
+                break;
+            
+            case SPAWN_CELL:
+                new SimulationInterface(world).spawnCell(a, b);
+                break;
+            
+            case SPAWN_FOOD:
+                new SimulationInterface(world).spawnFood(a, b);
+                break;
+        }
+    }
+    
+    private static void addFood(SimulationWorld world, int count) {
+        for (int i = 0; i < count; i++) {
+            double x = world.getRandom().nextDouble() * world.getTotalWidth();
+            double y = world.getRandom().nextDouble() * world.getTotalHeight();
+            
+            double[] sig = new double[]{1.0,1.0,1.0,1.0,1.0,1.0,1.0,1.0};
+            
+            Food food = new Food(x, y,
+            new ChemicalSignature(
+                sig
+            ),
+            50);
+            food.setMass(1);
+            food.setSize(3);
+            food.setColor(new Color(
+                100 + world.getRandom().nextInt(155),
+                100 + world.getRandom().nextInt(155),
+                255
+            ));
+            food.dampingFactor = 0.99;
+            
+            world.queueAddition(food);
+        }
+        System.out.println("Added " + count + " food particles");
+    }
+    
+    private static void removeEntities(SimulationWorld world, int count) {
+        // Keep at least 1
+        int toRemove = Math.min(count, world.getEntityCount() - 1);
+        List<PhysicsObj> entities = world.getEntities();
+        
+        for (int i = 0; i < toRemove && i < entities.size(); i++) {
+            entities.get(entities.size() - 1 - i).destroy();
+        }
+        
+        System.out.println("Removed " + toRemove + " entities");
+    }
+    
+    @Override
+    public String toString() {
+        return type + "(" + a + ", " + b + ")";
+    }
+}
@@ -0,0 +1,224 @@
+//INPUTJOURNAL.JAVA
+
+package Cells;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Route for every external input that changes the simulation.
+ * Inputs are submitted from any thread and applied on the simulation thread at the start of
+ * the next tick, in the order they arrived, so they always land between ticks.
+ * While recording, each applied input is also appended to a journal with the tick it was applied at.
+ * A recording is a directory holding the world as it was when recording started (start.world)
+ * and the journal (inputs.journal); ReplayRunner re-drives a world from the two.
+ */
+public class InputJournal {
+    public static final String START_FILE = "start.world";
+    public static final String JOURNAL_FILE = "inputs.journal";
+    
+    private static final int MAGIC = 0x494E5054; // "INPT"
+    private static final int VERSION = 1;
+    private static final byte END_OF_RECORDING = -1;
+    
+    private final ConcurrentLinkedQueue<InputCommand> pending = new ConcurrentLinkedQueue<>();
+    
+    // Only touched with the tick lock held
+    private DataOutputStream journal; // null when not recording
+    private File recording;
+    
+    /**
+     * One journal entry: an input and the tick it was applied before.
+     */
+    public static class Entry {
+        public final int tick;
+        public final InputCommand command;
+        
+        Entry(int tick, InputCommand command) {
+            this.tick = tick;
+            this.command = command;
+        }
+    }
+    
+    /**
+     * Contents of a journal file, as read by read.
+     */
+    public static class Recording {
+        public final int startTick;
+        public final int endTick; // Tick recording stopped at, or the last entry's if it never stopped cleanly
+        public final List<Entry> entries;
+        
+        Recording(int startTick, int endTick, List<Entry> entries) {
+            this.startTick = startTick;
+            this.endTick = endTick;
+            this.entries = entries;
+        }
+    }
+    
+    /**
+     * Queue an input for the start of the next tick. Safe to call from any thread.
+     */
+    public void submit(InputCommand command) {
+        pending.add(command);
+    }
+    
+    /**
+     * Apply the queued inputs, recording them if a recording is running.
+     * Called by the simulation thread with the tick lock held, before the tick itself.
+     *
+     * @param tick Main's tick counter before this tick
+     */
+    public void applyPending(SimulationWorld world, int tick) {
+        boolean wrote = false;
+        InputCommand command;
+        while ((command = pending.poll()) != null) {
+            command.apply(world);
+            if (journal != null) {
+                wrote |= write(tick, command);
+            }
+        }
+        
+        if (wrote) {
+            try {
+                journal.flush();
+            } catch (IOException e) {
+                abortRecording(e);
+            }
+        }
+    }
+    
+    /**
+     * Drop the queued inputs without applying them (while a replay drives the world).
+     *
+     * @return Number of inputs dropped
+     */
+    public int discardPending() {
+        int count = 0;
+        while (pending.poll() != null) {
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Save the world and start journaling inputs into a new recording directory.
+     * Call with the world's tick lock held.
+     */
+    public void startRecording(SimulationWorld world, File directory) throws IOException {
+        stopRecording();
+        
+        WorldCheckpoint.save(world, new File(directory, START_FILE));
+        journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(directory, JOURNAL_FILE))));
+        journal.writeInt(MAGIC);
+        journal.writeInt(VERSION);
+        journal.writeInt(world.getEcosystem().getCycles());
+        journal.flush();
+        recording = directory;
+    }
+    
+    /**
+     * Close the journal, marking the tick it ended at. Call with the world's tick lock held.
+     *
+     * @return Directory of the recording that was stopped, or null if none was running
+     */
+    public File stopRecording() {
+        if (journal == null) {
+            return null;
+        }
+        
+        File stopped = recording;
+        try {
+            journal.writeInt(Main.getCycles());
+            journal.writeByte(END_OF_RECORDING);
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Input journal not closed cleanly: " + e.getMessage());
+        }
+        journal = null;
+        recording = null;
+        return stopped;
+    }
+    
+    public boolean isRecording() {
+        return journal != null;
+    }
+    
+    public File getRecording() {
+        return recording;
+    }
+    
+    private boolean write(int tick, InputCommand command) {
+        try {
+            journal.writeInt(tick);
+            journal.writeByte(command.getType().ordinal());
+            journal.writeDouble(command.getA());
+            journal.writeDouble(command.getB());
+            return true;
+        } catch (IOException e) {
+            abortRecording(e);
+            return false;
+        }
+    }
+    
+    private void abortRecording(IOException e) {
+        System.out.println("Input journal failed, recording stopped: " + e.getMessage());
+        try {
+            journal.close();
+        } catch (IOException ignored) {
+        }
+        journal = null;
+        recording = null;
+    }
+    
+    /**
+     * Read the journal of a recording directory. A journal cut short (the program died while
+     * recording) is read up to its last complete entry.
+     */
+    public static Recording read(File directory) throws IOException {
+        File file = new File(directory, JOURNAL_FILE);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an input journal: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported input journal version " + version + " (expected " + VERSION + ")");
+            }
+            int startTick = in.readInt();
+            
+            InputCommand.Type[] types = InputCommand.Type.values();
+            List<Entry> entries = new ArrayList<>();
+            int endTick = startTick;
+            try {
+                while (true) {
+                    int tick = in.readInt();
+                    byte type = in.readByte();
+                    if (type == END_OF_RECORDING) {
+                        return new Recording(startTick, tick, entries);
+                    }
+                    if (type < 0 || type >= types.length || tick < endTick) {
+                        throw new IOException("Corrupt input journal entry at tick " + tick + ": " + file);
+                    }
+                    
+                    double a = in.readDouble();
+                    double b = in.readDouble();
+                    entries.add(new Entry(tick, new InputCommand(types[type], a, b)));
+                    endTick = tick;
+                }
+            } catch (EOFException e) {
+                // Never stopped: replay up to the last input
+                return new Recording(startTick, endTick, entries);
+            }
+        }
+    }
+}
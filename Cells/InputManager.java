@@ -2,17 +2,22 @@
 
 package Cells;
 
-import java.awt.Color;
 import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Manages keyboard input and parameter adjustment.
+ * Keys that change the simulation submit InputCommands to Main's InputJournal instead of
+ * touching the world, so they are applied between ticks and can be recorded and replayed.
  */
 public class InputManager {
     private static final String[] PARAMETER_NAMES = {
         "", "Gone sorryy", "TimeStep", "Camera", "Entities", "Clear"
     };
     
+    private static final File QUICK_SAVE_FILE = new File("saves", "quicksave.world");
+    
     private boolean[] keys = new boolean[256];
     private int selectedParameter = 1;
     
@@ -39,6 +44,69 @@ public class InputManager {
         if (keyCode == KeyEvent.VK_G) {
             toggleGradientVisualization();
         }
+        
+        // Toggle density heatmap when zoomed out
+        if (keyCode == KeyEvent.VK_L) {
+            toggleDensityLod();
+        }
+        
+        // Toggle frame recording (shift records a raw RGBA stream instead of PNGs)
+        if (keyCode == KeyEvent.VK_R) {
+            toggleRecording(keys[KeyEvent.VK_SHIFT] ? FrameRecorder.Format.RAW_RGBA : FrameRecorder.Format.PNG_SEQUENCE);
+        }
+        
+        // Cycle render quality profile
+        if (keyCode == KeyEvent.VK_P) {
+            cycleRenderProfile();
+        }
+        
+        // Toggle dirty-tile redraws, to compare against redrawing every frame in full
+        if (keyCode == KeyEvent.VK_F7) {
+            togglePartialRedraw();
+        }
+        
+        // Toggle the multi-threaded tile rasterizer, to compare against drawing on one thread
+        if (keyCode == KeyEvent.VK_F8) {
+            toggleParallelTiles();
+        }
+        
+        // Quick save / quick load (shift loads the autosave chain instead)
+        if (keyCode == KeyEvent.VK_F5) {
+            saveWorld();
+        }
+        if (keyCode == KeyEvent.VK_F6) {
+            toggleAutosave();
+        }
+        if (keyCode == KeyEvent.VK_F9) {
+            if (keys[KeyEvent.VK_SHIFT]) {
+                restoreAutosave();
+            } else {
+                loadWorld();
+            }
+        }
+        
+        // Record inputs / replay the last recording
+        if (keyCode == KeyEvent.VK_J) {
+            toggleInputJournal(keys[KeyEvent.VK_SHIFT]);
+        }
+        
+        // Stream population metrics to CSV
+        if (keyCode == KeyEvent.VK_T) {
+            toggleMetricsRecording();
+        }
+        
+        // Toggle the per-phase timing overlay
+        if (keyCode == KeyEvent.VK_F3) {
+            System.out.println("Profiler: " + (Profiler.toggle() ? "ON" : "OFF"));
+        }
+        
+        // Toggle max speed (several ticks per rendered frame)
+        if (keyCode == KeyEvent.VK_M) {
+            GameLoop gameLoop = Main.getGameLoop();
+            if (gameLoop != null) {
+                gameLoop.toggleMaxSpeed();
+            }
+        }
     }
     
     /**
@@ -50,10 +118,8 @@ public class InputManager {
         }
         
         // Parameter adjustment
-        if (keyCode == KeyEvent.VK_OPEN_BRACKET) {
-            adjustParameter(false);
-        } else if (keyCode == KeyEvent.VK_CLOSE_BRACKET) {
-            adjustParameter(true);
+        if (keyCode == KeyEvent.VK_OPEN_BRACKET || keyCode == KeyEvent.VK_CLOSE_BRACKET) {
+            adjustParameter(keyCode == KeyEvent.VK_CLOSE_BRACKET);
         }
     }
     
@@ -86,9 +152,7 @@ public class InputManager {
      * Toggle simulation pause.
      */
     private void togglePause() {
-        SimulationWorld world = SimulationWorld.getInstance();
-        world.setPaused(!world.isPaused());
-        System.out.println(world.isPaused() ? "PAUSED" : "RUNNING");
+        Main.getInputJournal().submit(InputCommand.togglePause());
     }
     
     /**
@@ -101,11 +165,147 @@ public class InputManager {
         System.out.println("Gradient visualization: " + (displayer.isShowingGradientField() ? "ON" : "OFF"));
     }
     
+    /**
+     * Toggle the zoomed-out density heatmap.
+     */
+    private void toggleDensityLod() {
+        Displayer displayer = SimulationWorld.getInstance().getDisplayer();
+        displayer.toggleDensityLod();
+        System.out.println("Density LOD: " + (displayer.isDensityLod() ? "ON" : "OFF"));
+    }
+    
+    private void togglePartialRedraw() {
+        Displayer displayer = SimulationWorld.getInstance().getDisplayer();
+        displayer.togglePartialRedraw();
+        System.out.println("Partial redraw: " + (displayer.isPartialRedraw() ? "ON" : "OFF"));
+    }
+    
+    private void toggleParallelTiles() {
+        Displayer displayer = SimulationWorld.getInstance().getDisplayer();
+        displayer.toggleParallelTiles();
+        System.out.println("Parallel tiles: " + (displayer.isParallelTiles() ? "ON" : "OFF"));
+    }
+    
+    /**
+     * Write the whole world to the quick save file, between ticks.
+     */
+    private void saveWorld() {
+        SimulationWorld world = SimulationWorld.getInstance();
+        world.getTickLock().lock();
+        try {
+            long start = System.nanoTime();
+            long bytes = WorldCheckpoint.save(world, QUICK_SAVE_FILE);
+            System.out.println(String.format("Saved %d entities (%.1f MB) to %s in %.0f ms",
+                world.getEntityCount(), bytes / 1e6, QUICK_SAVE_FILE, (System.nanoTime() - start) / 1e6));
+        } catch (IOException e) {
+            System.out.println("Save failed: " + e.getMessage());
+        } finally {
+            world.getTickLock().unlock();
+        }
+    }
+    
+    /**
+     * Replace the world with the quick save file, between ticks.
+     */
+    private void loadWorld() {
+        SimulationWorld world = SimulationWorld.getInstance();
+        world.getTickLock().lock();
+        try {
+            Main.endInputJournal();
+            long start = System.nanoTime();
+            int count = WorldCheckpoint.load(world, QUICK_SAVE_FILE);
+            world.publishSnapshot();
+            System.out.println(String.format("Loaded %d entities from %s in %.0f ms",
+                count, QUICK_SAVE_FILE, (System.nanoTime() - start) / 1e6));
+        } catch (IOException e) {
+            System.out.println("Load failed: " + e.getMessage());
+        } finally {
+            world.getTickLock().unlock();
+        }
+    }
+    
+    /**
+     * Turn periodic delta checkpoints on or off, between ticks.
+     */
+    private void toggleAutosave() {
+        SimulationWorld world = SimulationWorld.getInstance();
+        world.getTickLock().lock();
+        try {
+            Main.toggleAutosave();
+        } finally {
+            world.getTickLock().unlock();
+        }
+    }
+    
+    /**
+     * Start or stop streaming population metrics to CSV, between ticks.
+     */
+    private void toggleMetricsRecording() {
+        SimulationWorld world = SimulationWorld.getInstance();
+        world.getTickLock().lock();
+        try {
+            Main.toggleMetricsRecording();
+        } finally {
+            world.getTickLock().unlock();
+        }
+    }
+    
+    /**
+     * Replace the world with the latest autosave base and its deltas, between ticks.
+     */
+    private void restoreAutosave() {
+        SimulationWorld world = SimulationWorld.getInstance();
+        world.getTickLock().lock();
+        try {
+            Main.endInputJournal();
+            long start = System.nanoTime();
+            int deltas = Main.restoreAutosave(world);
+            world.publishSnapshot();
+            System.out.println(String.format("Restored autosave (base + %d deltas, %d entities) in %.0f ms",
+                deltas, world.getEntityCount(), (System.nanoTime() - start) / 1e6));
+        } catch (IOException e) {
+            System.out.println("Restore failed: " + e.getMessage());
+        } finally {
+            world.getTickLock().unlock();
+        }
+    }
+    
+    /**
+     * Start or stop journaling inputs (or a running replay), or replay the latest journal, between ticks.
+     */
+    private void toggleInputJournal(boolean replay) {
+        SimulationWorld world = SimulationWorld.getInstance();
+        world.getTickLock().lock();
+        try {
+            if (replay) {
+                Main.startReplay(world);
+            } else {
+                Main.toggleInputRecording(world);
+            }
+        } finally {
+            world.getTickLock().unlock();
+        }
+    }
+    
+    /**
+     * Switch the displayer to its next render profile.
+     */
+    private void cycleRenderProfile() {
+        RenderProfile profile = SimulationWorld.getInstance().getDisplayer().cycleRenderProfile();
+        System.out.println("Render profile: " + profile);
+    }
+    
+    /**
+     * Start or stop streaming frames to disk.
+     */
+    private void toggleRecording(FrameRecorder.Format format) {
+        SimulationWorld.getInstance().getDisplayer().toggleRecording(format);
+    }
+    
     /**
      * Adjust the selected parameter.
      */
     private void adjustParameter(boolean increase) {
-        SimulationWorld world = SimulationWorld.getInstance();
         double factor = increase ? 1.1 : 0.9;
         
         switch (selectedParameter) {
@@ -136,69 +336,22 @@ public class InputManager {
      * Adjust time step.
      */
     private void adjustTimeStep(double factor) {
-        SimulationWorld world = SimulationWorld.getInstance();
-        double newDt = world.getTimeStep() * factor;
-        world.setTimeStep(newDt);
-        System.out.printf("Time step: %.3f\n", newDt);
+        Main.getInputJournal().submit(InputCommand.scaleTimeStep(factor));
     }
     
     /**
      * Add or remove entities.
      */
     private void adjustEntityCount(boolean increase) {
-        SimulationWorld world = SimulationWorld.getInstance();
-        
-        if (increase) {
-            // Add 10 food particles
-            for (int i = 0; i < 10; i++) {
-                double x = world.getRandom().nextDouble() * world.getTotalWidth();
-                double y = world.getRandom().nextDouble() * world.getTotalHeight();
-
-                double[] sig = new double[]{1.0,1.0,1.0,1.0,1.0,1.0,1.0,1.0};
-                
-                Food food = new Food(x, y,
-                new ChemicalSignature(
-                    sig
-                ),
-                50);
-                food.setMass(1);
-                food.setSize(3);
-                food.setColor(new Color(
-                    100 + world.getRandom().nextInt(155),
-                    100 + world.getRandom().nextInt(155),
-                    255
-                ));
-                food.dampingFactor = 0.99;
-                
-                world.queueAddition(food);
-            }
-            System.out.println("Added 10 food particles");
-        } else {
-            // Remove 10 entities (but keep at least 1)
-            int toRemove = Math.min(10, world.getEntityCount() - 1);
-            var entities = world.getEntities();
-            
-            for (int i = 0; i < toRemove && i < entities.size(); i++) {
-                entities.get(entities.size() - 1 - i).destroy();
-            }
-            
-            System.out.println("Removed " + toRemove + " entities");
-        }
+        // Add 10 food particles, or remove 10 entities (but keep at least 1)
+        Main.getInputJournal().submit(increase ? InputCommand.addFood(10) : InputCommand.removeEntities(10));
     }
     
     /**
      * Clear all entities except static ones.
      */
     private void clearAllEntities() {
-        SimulationWorld world = SimulationWorld.getInstance();
-        
-        for (PhysicsObj entity : world.getEntities()) {
-            if (!entity.isStatic()) {
-                entity.destroy();
-            }
-        }
-        
-        System.out.println("Cleared all non-static entities");
+        Main.getInputJournal().submit(InputCommand.clearEntities());
     }
     
     private static final double CAMERA_SPEED = 10.0;
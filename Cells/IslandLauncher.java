@@ -0,0 +1,104 @@
+//ISLANDLAUNCHER.JAVA
+
+package Cells;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts an island-model run on this machine: one IslandWorker process per island, each with its own
+ * heap and garbage collector, connected in a ring on consecutive localhost ports. Worker output is
+ * echoed with an island prefix; when all are done the summary lines are collected and the combined
+ * throughput (island ticks per second) is printed. Islands only meet once per migration interval,
+ * so throughput should grow with the island count as long as there are cores to run them.
+ * Run with: java Cells.IslandLauncher [islands] [ticks] [interval] [migrants] [seed] [basePort]
+ */
+public class IslandLauncher {
+    public static void main(String[] args) throws Exception {
+        int islands = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 3600;
+        int interval = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        int migrants = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        int basePort = args.length > 5 ? Integer.parseInt(args[5]) : 47100;
+        
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+        
+        System.out.println(String.format("Launching %d islands: %d ticks, %d migrants every %d ticks, ports %d-%d",
+            islands, ticks, migrants, interval, basePort, basePort + islands - 1));
+        
+        long start = System.nanoTime();
+        List<Process> processes = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        String[] summaries = new String[islands]; // Written by the reader threads, read after join
+        try {
+            for (int island = 0; island < islands; island++) {
+                ProcessBuilder builder = new ProcessBuilder(
+                    java, "-Djava.awt.headless=true", "-cp", classPath, IslandWorker.class.getName(),
+                    String.valueOf(island), String.valueOf(islands), String.valueOf(basePort),
+                    String.valueOf(ticks), String.valueOf(interval), String.valueOf(migrants),
+                    String.valueOf(seed + island));
+                builder.redirectErrorStream(true);
+                Process process = builder.start();
+                processes.add(process);
+                readers.add(echo(process, island, summaries));
+            }
+            
+            int failed = 0;
+            for (int island = 0; island < islands; island++) {
+                int exit = processes.get(island).waitFor();
+                readers.get(island).join();
+                if (exit != 0) {
+                    System.out.println("Island " + island + " failed with exit code " + exit);
+                    failed++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            
+            System.out.println("=== ISLAND SUMMARY ===");
+            for (String summary : summaries) {
+                if (summary != null) {
+                    System.out.println(summary);
+                }
+            }
+            System.out.println(String.format("%d islands x %d ticks in %.1f s: %.0f island ticks/s",
+                islands, ticks, seconds, islands * (double) ticks / seconds));
+            if (failed > 0) {
+                System.exit(1);
+            }
+        } finally {
+            // Never leave workers behind if the launcher itself fails
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+    
+    /**
+     * Copy a worker's output to ours with an island prefix, keeping its summary line.
+     */
+    private static Thread echo(Process process, int island, String[] summaries) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("SUMMARY ")) {
+                        summaries[island] = line.substring("SUMMARY ".length());
+                    } else {
+                        System.out.println("[island " + island + "] " + line);
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("[island " + island + "] output lost: " + e.getMessage());
+            }
+        }, "IslandOutput-" + island);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,341 @@
+//ISLANDWORKER.JAVA
+
+package Cells;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * One island of the island model: a headless world in its own process that trades migrant genomes
+ * with its neighbours on a ring over localhost sockets. Every migration interval it sends copies of
+ * its highest-energy cells to the next island and takes in the migrants the previous island sent
+ * one interval earlier. That lag means the read almost never waits, so islands run at their own
+ * pace; and since every island always imports the same epoch, a run is reproducible for given seeds.
+ * Migrants travel as Cell.exportGenome records, GENOME_LENGTH doubles each, in one frame per epoch.
+ * A reader thread drains the previous island's frames as they arrive, so a frame larger than the
+ * socket buffers never leaves two islands blocked writing to each other.
+ * Started by IslandLauncher; prints one summary line starting with SUMMARY when it finishes.
+ * Run with: java Cells.IslandWorker island islands basePort ticks interval migrants seed
+ */
+public class IslandWorker {
+    private static final int FRAME_MAGIC = 0x43454C4C; // "CELL"
+    private static final int MAX_MIGRANTS = 4096;
+    private static final int GENOME_BYTES = Cell.GENOME_LENGTH * 8;
+    private static final int CONNECT_TIMEOUT_MS = 30000;
+    
+    private static final Comparator<Cell> FITTEST_FIRST =
+        Comparator.comparingDouble(Cell::getEnergy).reversed().thenComparingLong(Cell::getEntityId);
+    
+    private final int island;
+    private final int islands;
+    private final int basePort;
+    private final int migrationInterval;
+    private final int migrantsPerEpoch;
+    private final SimulationWorld world;
+    
+    private Socket nextSocket;
+    private Socket previousSocket;
+    private DataOutputStream toNext;
+    private Thread reader;
+    private final BlockingQueue<Frame> arrivals = new LinkedBlockingQueue<>(); // Filled by the reader thread
+    private final ByteBuffer genome = ByteBuffer.allocate(GENOME_BYTES);
+    
+    private int epoch = 0;
+    private long migrantsSent = 0;
+    private long migrantsReceived = 0;
+    private long waitNanos = 0;
+    
+    public IslandWorker(int island, int islands, int basePort, int migrationInterval, int migrantsPerEpoch, long seed) {
+        if (migrantsPerEpoch > MAX_MIGRANTS) {
+            throw new IllegalArgumentException("At most " + MAX_MIGRANTS + " migrants per epoch: " + migrantsPerEpoch);
+        }
+        this.island = island;
+        this.islands = islands;
+        this.basePort = basePort;
+        this.migrationInterval = migrationInterval;
+        this.migrantsPerEpoch = migrantsPerEpoch;
+        
+        this.world = new SimulationWorld(50, 600, 600);
+        world.getRandom().setSeed(seed);
+        world.getEcosystem().setVerbose(false);
+    }
+    
+    /**
+     * Join the ring: listen for the previous island, connect to the next one, then accept.
+     * Every island listens before it connects, so the launch order does not matter.
+     */
+    public void connect() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (ServerSocket server = new ServerSocket(basePort + island, 1, loopback)) {
+            nextSocket = connectWithRetry(new InetSocketAddress(loopback, basePort + (island + 1) % islands));
+            toNext = new DataOutputStream(new BufferedOutputStream(nextSocket.getOutputStream()));
+            
+            server.setSoTimeout(CONNECT_TIMEOUT_MS);
+            previousSocket = server.accept();
+            previousSocket.setTcpNoDelay(true);
+        }
+        
+        DataInputStream fromPrevious = new DataInputStream(new BufferedInputStream(previousSocket.getInputStream()));
+        reader = new Thread(() -> readFrames(fromPrevious), "IslandReader-" + island);
+        reader.setDaemon(true);
+        reader.start();
+    }
+    
+    private static Socket connectWithRetry(InetSocketAddress address) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(address, CONNECT_TIMEOUT_MS);
+                socket.setTcpNoDelay(true);
+                return socket;
+            } catch (ConnectException e) {
+                socket.close();
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Island at " + address + " never came up", e);
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting to " + address);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Run the world for the given number of ticks, migrating every interval.
+     */
+    public void run(int ticks) throws IOException {
+        world.bindToCurrentThread();
+        try {
+            Ecosystem ecosystem = world.getEcosystem();
+            ecosystem.populate();
+            world.processPendingChanges();
+            world.setPaused(false);
+            
+            for (int tick = 1; tick <= ticks; tick++) {
+                ecosystem.step();
+                if (tick % migrationInterval == 0) {
+                    migrate();
+                }
+            }
+        } finally {
+            SimulationWorld.unbind();
+        }
+    }
+    
+    /**
+     * Send this epoch's emigrants, then settle the previous island's emigrants from the epoch before.
+     * Emigrants are copies: the originals stay on this island.
+     */
+    private void migrate() throws IOException {
+        epoch++;
+        List<Cell> emigrants = selectEmigrants();
+        
+        toNext.writeInt(FRAME_MAGIC);
+        toNext.writeInt(epoch);
+        toNext.writeInt(emigrants.size());
+        for (Cell cell : emigrants) {
+            genome.clear();
+            cell.exportGenome(genome);
+            toNext.write(genome.array(), 0, genome.position());
+        }
+        toNext.flush();
+        migrantsSent += emigrants.size();
+        
+        if (epoch > 1) {
+            long start = System.nanoTime();
+            Frame frame = takeFrame(epoch - 1);
+            waitNanos += System.nanoTime() - start;
+            
+            ByteBuffer migrants = ByteBuffer.wrap(frame.genomes);
+            List<Cell> settlers = new ArrayList<>(frame.count);
+            for (int i = 0; i < frame.count; i++) {
+                settlers.add(settle(migrants));
+            }
+            // Added directly rather than queued, so population metrics don't count them as births
+            world.addEntities(settlers);
+            migrantsReceived += frame.count;
+        }
+    }
+    
+    private List<Cell> selectEmigrants() {
+        List<Cell> cells = new ArrayList<>();
+        for (PhysicsObj entity : world.getEntities()) {
+            if (entity instanceof Cell && !entity.removalQueued) {
+                cells.add((Cell) entity);
+            }
+        }
+        cells.sort(FITTEST_FIRST);
+        return cells.subList(0, Math.min(migrantsPerEpoch, cells.size()));
+    }
+    
+    /**
+     * Wait for the previous island's frame of the given epoch. Frames arrive in epoch order.
+     */
+    private Frame takeFrame(int expectedEpoch) throws IOException {
+        Frame frame;
+        try {
+            frame = arrivals.take();
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for migrants of epoch " + expectedEpoch);
+        }
+        if (frame.error != null) {
+            throw new IOException("Lost the connection to island " + previousIsland(), frame.error);
+        }
+        if (frame.genomes == null) {
+            throw new IOException("Island " + previousIsland() + " left the ring before sending epoch " + expectedEpoch);
+        }
+        return frame;
+    }
+    
+    /**
+     * Reader thread: queue every frame the previous island sends until it closes its end.
+     * Ends with a frame holding either the error or, at end of stream, no genomes.
+     */
+    private void readFrames(DataInputStream in) {
+        Frame last;
+        try {
+            for (int expectedEpoch = 1; ; expectedEpoch++) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException e) {
+                    break; // The previous island finished and shut down its output
+                }
+                int frameEpoch = in.readInt();
+                int count = in.readInt();
+                if (magic != FRAME_MAGIC || frameEpoch != expectedEpoch || count < 0 || count > MAX_MIGRANTS) {
+                    throw new IOException(String.format("Bad migrant frame from island %d: magic %08x, epoch %d (expected %d), %d migrants",
+                        previousIsland(), magic, frameEpoch, expectedEpoch, count));
+                }
+                byte[] genomes = new byte[count * GENOME_BYTES];
+                in.readFully(genomes);
+                arrivals.add(new Frame(count, genomes, null));
+            }
+            last = new Frame(0, null, null);
+        } catch (IOException e) {
+            last = new Frame(0, null, e);
+        }
+        arrivals.add(last);
+    }
+    
+    private int previousIsland() {
+        return (island + islands - 1) % islands;
+    }
+    
+    /**
+     * Build one migrant at a random spot, as a newborn with the migrant's genome.
+     */
+    private Cell settle(ByteBuffer migrantGenome) {
+        Random random = world.getRandom();
+        Cell cell = world.getEntityPool().obtainCell(
+            random.nextDouble() * world.getTotalWidth(),
+            random.nextDouble() * world.getTotalHeight()
+        );
+        cell.importGenome(migrantGenome);
+        cell.setEnergy(100);
+        return cell;
+    }
+    
+    /**
+     * Leave the ring without cutting off a neighbour: flush and half-close the connection to the
+     * next island, then keep draining the previous one until it has shut down its end too, so its
+     * last frames never hit a closed socket.
+     */
+    public void close() {
+        try {
+            if (toNext != null) {
+                toNext.flush();
+                nextSocket.shutdownOutput();
+            }
+            if (reader != null) {
+                reader.join();
+            }
+        } catch (IOException e) {
+            // The next island is gone already; nothing left to deliver
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeQuietly(nextSocket);
+            closeQuietly(previousSocket);
+        }
+    }
+    
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Closing at exit, nothing left to save
+        }
+    }
+    
+    public String summary(int ticks, double seconds) {
+        PopulationMetrics metrics = world.getPopulationMetrics();
+        return String.format("SUMMARY island=%d ticks=%d cells=%d predators=%.3f energy=%.1f red=%.3f green=%.3f blue=%.3f"
+                + " sent=%d received=%d wait_ms=%.0f seconds=%.2f",
+            island, ticks, metrics.getCellCount(), metrics.getPredatorFraction(), metrics.getMean(PopulationMetrics.ENERGY),
+            metrics.getMean(PopulationMetrics.RED), metrics.getMean(PopulationMetrics.GREEN), metrics.getMean(PopulationMetrics.BLUE),
+            migrantsSent, migrantsReceived, waitNanos / 1e6, seconds);
+    }
+    
+    /**
+     * One epoch's migrants as received, or how the stream ended: genomes is null at the end,
+     * with error set if it ended badly.
+     */
+    private static class Frame {
+        final int count;
+        final byte[] genomes;
+        final IOException error;
+        
+        Frame(int count, byte[] genomes, IOException error) {
+            this.count = count;
+            this.genomes = genomes;
+            this.error = error;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 7) {
+            System.out.println("Usage: java Cells.IslandWorker island islands basePort ticks interval migrants seed");
+            System.exit(2);
+        }
+        int island = Integer.parseInt(args[0]);
+        int islands = Integer.parseInt(args[1]);
+        int basePort = Integer.parseInt(args[2]);
+        int ticks = Integer.parseInt(args[3]);
+        int interval = Integer.parseInt(args[4]);
+        int migrants = Integer.parseInt(args[5]);
+        long seed = Long.parseLong(args[6]);
+        
+        IslandWorker worker = new IslandWorker(island, islands, basePort, interval, migrants, seed);
+        try {
+            worker.connect();
+            long start = System.nanoTime();
+            worker.run(ticks);
+            System.out.println(worker.summary(ticks, (System.nanoTime() - start) / 1e9));
+        } finally {
+            worker.close();
+        }
+    }
+}
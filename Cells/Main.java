@@ -2,9 +2,10 @@
 
 package Cells;
 
-import java.awt.Color;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Main with discrete food types creating clear niches.
@@ -17,9 +18,26 @@ public class Main {
     
     private static boolean autoCamera = false;
     
-    // Food region parameters - each quadrant specialized
-    private static int currentCycle = 0;
-    private static final int CYCLE_LENGTH = 600; // 10 seconds per cycle
+    private static final double TICK_RATE = 60.0; // Simulation ticks per second
+    private static final int MAX_RENDER_FPS = 60;
+    private static final int PANEL_REPAINT_DELAY = 1000; // Millis; the Displayer repaints what it draws each frame
+    
+    private static volatile GameLoop gameLoop; // Null until the loop is built; read from the AWT thread too
+    
+    // Periodic checkpoints: mostly small deltas, with a full base now and then
+    private static final int AUTOSAVE_INTERVAL = 300; // Ticks, 5 seconds
+    private static final CheckpointChain autosave = new CheckpointChain(new File("saves", "autosave"));
+    private static boolean autosaveEnabled = false;
+    
+    // External inputs, applied between ticks and optionally journaled; a replay takes over the ticks while it runs
+    private static final InputJournal inputJournal = new InputJournal();
+    private static ReplayRunner replay;
+    
+    // Per-tick population metrics streamed to CSV, null when not recording
+    private static MetricsRecorder metricsRecorder;
+    
+    // Allocation and GC pressure of the simulation thread, sampled every tick
+    private static final AllocationMonitor allocationMonitor = new AllocationMonitor();
     
     public static void main(String[] args) {
         SimulationWorld.initialize(50, 600, 600);
@@ -36,179 +54,92 @@ public class Main {
         setupKeyboard();
         setupMouse();
         
-        createInitialScene();
-        int cycles = 0;
+        world.getEcosystem().populate();
+        world.processPendingChanges();
+        world.publishSnapshot();
         
-        while (true) {
-            cycles++;
-
-            inputManager.update(displayer);
-            mouseManager.update(displayer);
-            
-            world.update();
-
-            // Spawn food continuously in different regions
-            if (!world.isPaused() && cycles % 3 == 0) {
-                spawnRegionalFood();
-            }
-            
-            // Environmental shift every 10 seconds
-            if (!world.isPaused() && cycles % CYCLE_LENGTH == 0) {
-                environmentalShift();
-            }
-            
-            world.processPendingChanges();
-            
-            render();
-            
-            displayer.getPanel().sleep(16);
-        }
+        gameLoop = new GameLoop(world, Main::tick, Main::renderFrame, TICK_RATE, MAX_RENDER_FPS);
+        
+        // While the loop drives frames the panel's own full repaints only need to catch stray drawing
+        displayer.getPanel().setRepaintDelay(PANEL_REPAINT_DELAY);
+        gameLoop.run();
     }
     
     /**
-     * Create initial scene with 4 clear regions.
+     * One simulation tick. Called by the GameLoop with the world's tick lock held.
      */
-    public static void createInitialScene() {
+    private static void tick() {
         SimulationWorld world = SimulationWorld.getInstance();
-        double width = world.getTotalWidth();
-        double height = world.getTotalHeight();
-        
-        // Spawn initial cells in center
-        for (int i = 0; i < 20; i++) {
-            double angle = Math.random() * Math.PI * 2;
-            double dist = Math.random() * 100;
-            Cell cell = new Cell(
-                width / 2 + Math.cos(angle) * dist,
-                height / 2 + Math.sin(angle) * dist,
-                ChemicalSignature.random()
-            );
-            world.addEntity(cell);
+        if (replay != null) {
+            stepReplay(world);
+        } else {
+            inputJournal.applyPending(world, getCycles());
+            simulateTick(world);
         }
         
-        // Spawn initial food in all regions
-        for (int i = 0; i < 20000; i++) {
-            spawnRegionalFood();
+        if (autosaveEnabled && getCycles() % AUTOSAVE_INTERVAL == 0) {
+            writeAutosave(world);
         }
         
-        System.out.println("=== DISCRETE FOOD TYPE SIMULATION ===");
-        System.out.println("Food types:");
-        System.out.println("  RED (top-left) - high energy, common");
-        System.out.println("  GREEN (top-right) - medium energy, very common");
-        System.out.println("  BLUE (bottom-left) - low energy, extremely common");
-        System.out.println("  GRAY - dead matter, appears randomly");
-        System.out.println("");
-        System.out.println("Cells evolve red/green/blue eating efficiencies");
-        System.out.println("Specialists eat faster but generalists survive shifts");
-        System.out.println("Environmental shift every 10 seconds");
+        world.publishSnapshot();
     }
     
     /**
-     * Spawn food in specific regions based on type.
+     * Advance the simulation by one tick (see Ecosystem.step), then sample allocation and
+     * stream the tick's population metrics if recording.
      */
-    private static void spawnRegionalFood() {
-        SimulationWorld world = SimulationWorld.getInstance();
-        double width = world.getTotalWidth();
-        double height = world.getTotalHeight();
-        
-        // Cycle determines which food type is abundant
-        int dominantType = (currentCycle / CYCLE_LENGTH) % 3;
-        
-        // Choose random food type with bias
-        int foodType;
-        double r = Math.random();
+    static void simulateTick(SimulationWorld world) {
+        Ecosystem ecosystem = world.getEcosystem();
+        ecosystem.step();
         
-        if (r < 0.5) {
-            // 50% chance: spawn dominant type
-            foodType = dominantType;
-        } else if (r < 0.8) {
-            // 30% chance: spawn other types
-            foodType = (dominantType + 1 + (int)(Math.random() * 2)) % 3;
-        } else {
-            // 20% chance: spawn gray dead matter
-            foodType = 3;
+        allocationMonitor.sampleTick();
+        if (metricsRecorder != null && !world.isPaused()) {
+            metricsRecorder.record(ecosystem.getCycles(), world.getPopulationMetrics(), allocationMonitor);
         }
-        
-        // Choose region based on food type
-        double x, y;
-        
-        switch (foodType) {
-            case 0: // RED - top-left quadrant
-                x = Math.random() * width * 0.6;
-                y = Math.random() * height * 0.6;
-                break;
-            case 1: // GREEN - top-right quadrant
-                x = width * 0.4 + Math.random() * width * 0.6;
-                y = Math.random() * height * 0.6;
-                break;
-            case 2: // BLUE - bottom half
-                x = Math.random() * width;
-                y = height * 0.4 + Math.random() * height * 0.6;
-                break;
-            case 3: // GRAY - anywhere
-            default:
-                x = Math.random() * width;
-                y = Math.random() * height;
-                break;
+    }
+    
+    private static void stepReplay(SimulationWorld world) {
+        if (inputJournal.discardPending() > 0) {
+            System.out.println("Input ignored during replay (J stops the replay)");
         }
         
-        // Add some randomness
-        x += (Math.random() - 0.5) * 50;
-        y += (Math.random() - 0.5) * 50;
-        x = ((x % width) + width) % width;
-        y = ((y % height) + height) % height;
-        
-        // Nutrition varies by type
-        double nutrition;
-        Color color;
-        
-        switch (foodType) {
-            case 0: // RED - high energy, rare
-                nutrition = 80 + Math.random() * 40;
-                color = new Color(200 + (int)(Math.random() * 55), 50, 50);
-                break;
-            case 1: // GREEN - medium energy, common
-                nutrition = 50 + Math.random() * 30;
-                color = new Color(50, 200 + (int)(Math.random() * 55), 50);
-                break;
-            case 2: // BLUE - low energy, very common
-                nutrition = 30 + Math.random() * 20;
-                color = new Color(50, 50, 200 + (int)(Math.random() * 55));
-                break;
-            case 3: // GRAY - dead matter
-                nutrition = 40 + Math.random() * 30;
-                color = new Color(100 + (int)(Math.random() * 80), 
-                                 100 + (int)(Math.random() * 80), 
-                                 100 + (int)(Math.random() * 80));
-                break;
-            default:
-                nutrition = 50;
-                color = Color.WHITE;
+        try {
+            if (!replay.step(world)) {
+                System.out.println("Replay finished at tick " + getCycles() + ", running live");
+                replay = null;
+            }
+        } catch (IOException e) {
+            System.out.println("Replay stopped: " + e.getMessage());
+            replay = null;
+        }
+    }
+    
+    private static void writeAutosave(SimulationWorld world) {
+        try {
+            long start = System.nanoTime();
+            long bytes = autosave.checkpoint(world);
+            if (autosave.getDeltaCount() == 0) {
+                System.out.println(String.format("Autosave: base of %d entities (%.1f MB) in %.0f ms",
+                    world.getEntityCount(), bytes / 1e6, (System.nanoTime() - start) / 1e6));
+            }
+        } catch (IOException e) {
+            autosaveEnabled = false;
+            System.out.println("Autosave failed, turned off: " + e.getMessage());
         }
-        
-        Food food = new Food(x, y, ChemicalSignature.random(), nutrition);
-        food.setColor(color);
-        food.setFoodType(foodType);
-        food.setMass(0.5);
-        world.queueAddition(food);
     }
     
     /**
-     * Environmental shift - change which food type is abundant.
+     * One rendered frame. Called by the GameLoop on the render thread.
      */
-    private static void environmentalShift() {
-        currentCycle++;
-        int dominantType = (currentCycle / CYCLE_LENGTH) % 3;
-        String[] typeNames = {"RED", "GREEN", "BLUE"};
-        System.out.println("");
-        System.out.println("=== ENVIRONMENTAL SHIFT ===");
-        System.out.println("Dominant food type: " + typeNames[dominantType]);
-        System.out.println("Specialists in this type will thrive!");
-        System.out.println("");
+    private static void renderFrame() {
+        inputManager.update(displayer);
+        mouseManager.update(displayer);
+        render(); // Repaints the changed parts of the window itself
     }
     
     private static void render() {
         if (autoCamera) {
-            displayer.updateCamera(SimulationWorld.getInstance().getEntities());
+            displayer.updateCamera(SimulationWorld.getInstance().getSnapshotBuffer().acquire());
         }
         
         displayer.display();
@@ -244,12 +175,141 @@ public class Main {
         return autoCamera;
     }
     
+    /**
+     * Turn periodic checkpoints on or off. Call with the world's tick lock held.
+     */
+    public static void toggleAutosave() {
+        autosaveEnabled = !autosaveEnabled;
+        System.out.println("Autosave: " + (autosaveEnabled ? "ON (every " + AUTOSAVE_INTERVAL + " ticks)" : "OFF"));
+    }
+    
+    /**
+     * Start streaming population metrics to a new CSV file under metrics/, or stop the current one.
+     * Call with the world's tick lock held.
+     */
+    public static void toggleMetricsRecording() {
+        if (metricsRecorder != null) {
+            metricsRecorder.stop();
+            metricsRecorder = null;
+            return;
+        }
+        
+        String name = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date());
+        File file = new File("metrics", "metrics_" + name + ".csv");
+        try {
+            metricsRecorder = new MetricsRecorder(file);
+            System.out.println("Recording population metrics from tick " + getCycles() + " to " + file);
+        } catch (IOException e) {
+            System.out.println("Could not start metrics recording: " + e.getMessage());
+        }
+    }
+    
+    public static AllocationMonitor getAllocationMonitor() {
+        return allocationMonitor;
+    }
+    
+    public static InputJournal getInputJournal() {
+        return inputJournal;
+    }
+    
+    /**
+     * Start journaling inputs into a new directory under journals/, or stop the current journal.
+     * A running replay is stopped instead. Call with the world's tick lock held.
+     */
+    public static void toggleInputRecording(SimulationWorld world) {
+        if (replay != null) {
+            replay = null;
+            System.out.println("Replay stopped at tick " + getCycles() + ", running live");
+            return;
+        }
+        
+        File stopped = inputJournal.stopRecording();
+        if (stopped != null) {
+            System.out.println("Input recording stopped at tick " + getCycles() + ": " + stopped);
+            return;
+        }
+        
+        String name = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date());
+        File directory = new File("journals", "journal_" + name);
+        try {
+            inputJournal.startRecording(world, directory);
+            System.out.println("Recording inputs from tick " + getCycles() + " to " + directory);
+        } catch (IOException e) {
+            System.out.println("Could not start input recording: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Replay the most recent input journal from its starting snapshot. Call with the world's tick lock held.
+     */
+    public static void startReplay(SimulationWorld world) {
+        File[] journals = new File("journals").listFiles(File::isDirectory);
+        if (journals == null || journals.length == 0) {
+            System.out.println("No input journals to replay");
+            return;
+        }
+        
+        // Names are timestamps, so the last one is the newest
+        java.util.Arrays.sort(journals);
+        File latest = journals[journals.length - 1];
+        inputJournal.stopRecording();
+        
+        try {
+            ReplayRunner runner = new ReplayRunner(latest, ReplayRunner.DEFAULT_KEYFRAME_INTERVAL);
+            runner.start(world);
+            world.publishSnapshot();
+            replay = runner;
+            System.out.println(String.format("Replaying %s: ticks %d-%d, %d inputs",
+                latest, runner.getStartTick(), runner.getEndTick(), runner.getInputCount()));
+        } catch (IOException e) {
+            System.out.println("Could not replay " + latest + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stop journaling and replaying before the world is replaced from a save file,
+     * since neither describes the world any more. Call with the world's tick lock held.
+     */
+    public static void endInputJournal() {
+        if (replay != null) {
+            replay = null;
+            System.out.println("Replay stopped");
+        }
+        File stopped = inputJournal.stopRecording();
+        if (stopped != null) {
+            System.out.println("Input recording stopped: " + stopped);
+        }
+    }
+    
+    /**
+     * Replace the world with the latest autosave chain. Call with the world's tick lock held.
+     *
+     * @return Number of deltas applied on top of the base
+     */
+    public static int restoreAutosave(SimulationWorld world) throws IOException {
+        return autosave.restore(world);
+    }
+    
+    /**
+     * The running game loop, or null during startup.
+     */
+    public static GameLoop getGameLoop() {
+        return gameLoop;
+    }
+    
     public static SimulationInterface getInterface() {
         return simInterface;
     }
     
+    /**
+     * Ticks run by the current world.
+     */
+    public static int getCycles() {
+        return SimulationWorld.getInstance().getEcosystem().getCycles();
+    }
+    
     public static int getCyclePhase() {
-        return (currentCycle / CYCLE_LENGTH) % 3;
+        return SimulationWorld.getInstance().getEcosystem().getCyclePhase();
     }
     
     public static String getCyclePhaseName() {
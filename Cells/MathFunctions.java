@@ -2,6 +2,8 @@
 
 package Cells;
 
+import java.util.Random;
+
 /**
  * Utility math functions for the simulation.
  */
@@ -15,7 +17,14 @@ public class MathFunctions {
      * @return Mutation multiplier, typically between -1 and 1
      */
     public static double evolve(double evolveRate) {
-        double rand = (Math.random() * 2) - 1; // [-1, 1]
+        return evolve(SimulationWorld.getInstance().getRandom(), evolveRate);
+    }
+    
+    /**
+     * evolve drawing from the given RNG, for callers that hold their world's.
+     */
+    public static double evolve(Random random, double evolveRate) {
+        double rand = (random.nextDouble() * 2) - 1; // [-1, 1]
         double multiplier = 1;
         
         if (rand < 0) {
@@ -0,0 +1,174 @@
+//METRICSRECORDER.JAVA
+
+package Cells;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams one row of PopulationMetrics per tick, followed by the simulation thread's allocation
+ * and GC activity from the AllocationMonitor, to a CSV file on a background writer thread.
+ * The simulation thread only copies numbers into a pooled block of rows; formatting and I/O happen
+ * on the writer, a block at a time. When the writer falls behind and the pool is empty, rows are
+ * dropped (and counted) rather than stalling the simulation.
+ */
+public class MetricsRecorder {
+    private static final int ROWS_PER_BLOCK = 1024;
+    private static final int POOL_SIZE = 8;
+    
+    // tick, cells, predators, predator fraction, 4 food types, other, births, deaths,
+    // then mean and variance per value, then bytes allocated, collections and collection time
+    private static final int COUNT_COLUMNS = 11;
+    private static final int PREDATOR_FRACTION_COLUMN = 3;
+    private static final int ALLOCATION_COLUMN = COUNT_COLUMNS + PopulationMetrics.VALUE_COUNT * 2;
+    private static final int COLUMNS = ALLOCATION_COLUMN + 3;
+    
+    private final File file;
+    private final BlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Block> pendingBlocks = new ArrayBlockingQueue<>(POOL_SIZE + 1);
+    private final Block stopMarker = new Block();
+    private final Thread writer;
+    private final Writer out;
+    
+    private Block current; // Simulation thread only
+    private volatile boolean recording = true;
+    private volatile long rowsWritten = 0;
+    private volatile long rowsDropped = 0;
+    
+    private static class Block {
+        final double[] values = new double[ROWS_PER_BLOCK * COLUMNS];
+        int rows;
+    }
+    
+    /**
+     * Start a CSV file (parent directories are created) and write its header.
+     */
+    public MetricsRecorder(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        
+        this.file = file;
+        this.out = new BufferedWriter(new FileWriter(file), 1 << 16);
+        
+        StringBuilder header = new StringBuilder("tick,cells,predators,predator_fraction,food_red,food_green,food_blue,food_gray,other,births,deaths");
+        for (String name : PopulationMetrics.VALUE_NAMES) {
+            header.append(',').append(name).append("_mean,").append(name).append("_var");
+        }
+        header.append(",alloc_bytes,gc_count,gc_ms");
+        out.write(header.append('\n').toString());
+        
+        for (int i = 0; i < POOL_SIZE; i++) {
+            freeBlocks.add(new Block());
+        }
+        
+        this.writer = new Thread(this::runWriter, "MetricsRecorder");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+    
+    /**
+     * Copy the metrics of the tick that just finished into the current block (simulation thread). Never blocks.
+     */
+    public void record(int tick, PopulationMetrics metrics, AllocationMonitor allocation) {
+        if (!recording) return;
+        
+        if (current == null) {
+            current = freeBlocks.poll();
+            if (current == null) {
+                rowsDropped++;
+                return;
+            }
+        }
+        
+        double[] row = current.values;
+        int i = current.rows * COLUMNS;
+        row[i++] = tick;
+        row[i++] = metrics.getCellCount();
+        row[i++] = metrics.getPredatorCount();
+        row[i++] = metrics.getPredatorFraction();
+        for (int type = 0; type < PopulationMetrics.FOOD_TYPES; type++) {
+            row[i++] = metrics.getFoodCount(type);
+        }
+        row[i++] = metrics.getOtherCount();
+        row[i++] = metrics.getBirths();
+        row[i++] = metrics.getDeaths();
+        for (int value = 0; value < PopulationMetrics.VALUE_COUNT; value++) {
+            row[i++] = metrics.getMean(value);
+            row[i++] = metrics.getVariance(value);
+        }
+        row[i++] = allocation.getTickBytes();
+        row[i++] = allocation.getTickCollections();
+        row[i++] = allocation.getTickCollectionMillis();
+        
+        if (++current.rows == ROWS_PER_BLOCK) {
+            pendingBlocks.offer(current);
+            current = null;
+        }
+    }
+    
+    /**
+     * Hand over the partial block and let the writer finish in the background (simulation thread).
+     */
+    public void stop() {
+        if (!recording) return;
+        recording = false;
+        if (current != null) {
+            pendingBlocks.offer(current);
+            current = null;
+        }
+        pendingBlocks.offer(stopMarker);
+    }
+    
+    private void runWriter() {
+        StringBuilder line = new StringBuilder(512);
+        try {
+            while (true) {
+                Block block = pendingBlocks.take();
+                if (block == stopMarker) break;
+                
+                for (int r = 0; r < block.rows; r++) {
+                    line.setLength(0);
+                    int base = r * COLUMNS;
+                    for (int c = 0; c < COLUMNS; c++) {
+                        if (c > 0) line.append(',');
+                        double value = block.values[base + c];
+                        if ((c < COUNT_COLUMNS && c != PREDATOR_FRACTION_COLUMN) || c >= ALLOCATION_COLUMN) {
+                            line.append((long) value); // Counts
+                        } else {
+                            line.append((float) value); // Shortest text that round-trips a float
+                        }
+                    }
+                    out.append(line).append('\n');
+                }
+                rowsWritten += block.rows;
+                
+                block.rows = 0;
+                freeBlocks.add(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("Metrics recording failed: " + e.getMessage());
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+        System.out.println(String.format("Metrics recording finished: %d ticks written, %d dropped, %s",
+            rowsWritten, rowsDropped, file));
+    }
+    
+    public boolean isRecording() { return recording; }
+    public long getRowsWritten() { return rowsWritten; }
+    public long getRowsDropped() { return rowsDropped; }
+    public File getFile() { return file; }
+}
@@ -2,96 +2,274 @@
 
 package Cells;
 
+import java.awt.Rectangle;
+import java.awt.Shape;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-import java.util.List;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
 
 /**
  * Manages mouse input for entity selection and camera control.
+ * Hover picking and rectangle/lasso selection query the snapshot's bucket index
+ * around the cursor instead of scanning every entity. Hovered and selected entities are
+ * held by entity id and looked up in each snapshot, never through the live objects,
+ * which the pool recycles once they leave the world.
  */
 public class MouseManager implements MouseListener, MouseMotionListener, MouseWheelListener {
     private int mouseX;
     private int mouseY;
-    private PhysicsObj hoveredEntity;
+    private volatile long hoveredId = -1; // Written by the render thread, cleared on the AWT thread
     private boolean mouseInWindow;
     
     private static final double HOVER_DISTANCE_THRESHOLD = 20.0; // pixels
     private static final double ZOOM_WHEEL_FACTOR = 0.1;
+    private static final double MAX_ENTITY_RADIUS = 40.0; // Cells are at most 75 units across
+    private static final int DRAG_THRESHOLD = 4; // pixels before a press becomes a selection drag
+    
+    // Selection drag, written on the AWT thread (guarded by this)
+    private int dragStartX;
+    private int dragStartY;
+    private boolean pressed;
+    private boolean dragging;
+    private boolean lassoDrag;
+    private final Path2D.Float lassoPath = new Path2D.Float();
+    private Shape pendingSelection; // Screen-space shape waiting to be resolved on the render thread
+    
+    // Current selection by entity id, owned by the render thread
+    private long[] selectedIds = new long[64];
+    private int selectedCount;
+    private int selectedCellCount;
+    private int selectedFoodCount;
+    
+    // Snapshot indices (and wrapped positions) of the last bucket query
+    private int candidateCount;
+    private int[] candidateIndex = new int[256];
+    private double[] candidateX = new double[256];
+    private double[] candidateY = new double[256];
     
     public MouseManager() {
         this.mouseX = 0;
         this.mouseY = 0;
-        this.hoveredEntity = null;
         this.mouseInWindow = false;
     }
     
     /**
-     * Update hover detection (call every frame).
+     * Update hover detection and resolve a finished selection drag
+     * (call every frame from the render thread).
      */
     public void update(Displayer displayer) {
-        if (!mouseInWindow) {
-            hoveredEntity = null;
-            return;
+        SnapshotBuffer snapshots = SimulationWorld.getInstance().getSnapshotBuffer();
+        WorldSnapshot snapshot = snapshots.acquire();
+        
+        Shape selection;
+        synchronized (this) {
+            selection = pendingSelection;
+            pendingSelection = null;
         }
+        if (selection != null) {
+            selectEntities(snapshot, selection, displayer);
+        }
+        pruneSelection(snapshot);
         
-        // Convert mouse position to world coordinates
-        double worldX = displayer.screenToWorldX(mouseX);
-        double worldY = displayer.screenToWorldY(mouseY);
+        if (!mouseInWindow) {
+            hoveredId = -1;
+        } else {
+            // Convert mouse position to world coordinates
+            double worldX = displayer.screenToWorldX(mouseX);
+            double worldY = displayer.screenToWorldY(mouseY);
+            
+            // Find closest entity to mouse
+            hoveredId = findClosestEntity(snapshot, worldX, worldY, displayer);
+        }
         
-        // Find closest entity to mouse
-        hoveredEntity = findClosestEntity(worldX, worldY, displayer);
+        // The tooltip needs more than the snapshot columns; have the simulation copy the rest
+        snapshots.setInspectedId(hoveredId);
     }
     
     /**
-     * Find the entity closest to the given world position.
+     * Id of the entity closest to the given world position, or -1 if none is within reach.
+     * Only buckets within the hover threshold (in world units) plus the largest entity radius are visited.
      */
-    private PhysicsObj findClosestEntity(double worldX, double worldY, Displayer displayer) {
-        SimulationWorld world = SimulationWorld.getInstance();
-        List<PhysicsObj> entities = world.getEntities();
+    private long findClosestEntity(WorldSnapshot snapshot, double worldX, double worldY, Displayer displayer) {
+        double zoom = displayer.zoom;
+        double reach = HOVER_DISTANCE_THRESHOLD / zoom + MAX_ENTITY_RADIUS;
+        collectCandidates(snapshot, worldX - reach, worldY - reach, worldX + reach, worldY + reach);
         
-        PhysicsObj closest = null;
+        long closest = -1;
         double closestScreenDist = HOVER_DISTANCE_THRESHOLD;
         
-        for (PhysicsObj entity : entities) {
+        for (int c = 0; c < candidateCount; c++) {
+            int i = candidateIndex[c];
+            
             // Calculate screen-space distance (accounts for zoom and entity size)
-            double screenX = displayer.worldToScreenX(entity.getX());
-            double screenY = displayer.worldToScreenY(entity.getY());
-            double screenDist = Math.hypot(screenX - mouseX, screenY - mouseY);
+            double screenDist = Math.hypot(candidateX[c] - worldX, candidateY[c] - worldY) * zoom;
             
             // Consider entity size in screen space
-            double entityScreenRadius = entity.getSize() * displayer.zoom / 2.0;
+            double entityScreenRadius = snapshot.size[i] * zoom / 2.0;
             double effectiveDist = screenDist - entityScreenRadius;
             
             if (effectiveDist < closestScreenDist) {
                 closestScreenDist = effectiveDist;
-                closest = entity;
+                closest = snapshot.id[i];
             }
         }
         
         return closest;
     }
     
+    /**
+     * Replace the selection with every entity whose center lies inside a screen-space shape.
+     */
+    private void selectEntities(WorldSnapshot snapshot, Shape selection, Displayer displayer) {
+        selectedCount = 0;
+        
+        Rectangle bounds = selection.getBounds();
+        if (!bounds.isEmpty()) {
+            collectCandidates(snapshot,
+                displayer.screenToWorldX(bounds.getMinX()), displayer.screenToWorldY(bounds.getMinY()),
+                displayer.screenToWorldX(bounds.getMaxX()), displayer.screenToWorldY(bounds.getMaxY()));
+            
+            for (int c = 0; c < candidateCount; c++) {
+                double screenX = displayer.worldToScreenX(candidateX[c]);
+                double screenY = displayer.worldToScreenY(candidateY[c]);
+                if (selection.contains(screenX, screenY)) {
+                    addSelected(snapshot.id[candidateIndex[c]]);
+                }
+            }
+        }
+        
+        countSelection(snapshot);
+        if (selectedCount > 0) {
+            System.out.println(String.format("Selected %d entities (%d cells, %d food)",
+                selectedCount, selectedCellCount, selectedFoodCount));
+        }
+    }
+    
+    private void addSelected(long entityId) {
+        if (selectedCount == selectedIds.length) {
+            selectedIds = Arrays.copyOf(selectedIds, selectedCount * 2);
+        }
+        selectedIds[selectedCount++] = entityId;
+    }
+    
+    /**
+     * Drop selected entities that are no longer in the snapshot, i.e. have left the world.
+     */
+    private void pruneSelection(WorldSnapshot snapshot) {
+        int kept = 0;
+        for (int k = 0; k < selectedCount; k++) {
+            if (snapshot.indexOf(selectedIds[k]) >= 0) {
+                selectedIds[kept++] = selectedIds[k];
+            }
+        }
+        if (kept != selectedCount) {
+            selectedCount = kept;
+            countSelection(snapshot);
+        }
+    }
+    
+    private void countSelection(WorldSnapshot snapshot) {
+        selectedCellCount = 0;
+        selectedFoodCount = 0;
+        for (int k = 0; k < selectedCount; k++) {
+            int i = snapshot.indexOf(selectedIds[k]);
+            if (i < 0) continue;
+            if (snapshot.kind[i] == WorldSnapshot.KIND_CELL) selectedCellCount++;
+            else if (snapshot.kind[i] == WorldSnapshot.KIND_FOOD) selectedFoodCount++;
+        }
+    }
+    
+    /**
+     * Gather the snapshot entities in all buckets overlapping a world rectangle.
+     * Buckets past the world edge wrap around, and positions are shifted to the copy
+     * nearest the rectangle so distances and screen positions line up with what is drawn.
+     */
+    private void collectCandidates(WorldSnapshot snapshot, double minX, double minY, double maxX, double maxY) {
+        candidateCount = 0;
+        if (snapshot.count == 0) return;
+        
+        int cellSize = snapshot.cellSize;
+        double worldWidth = (double) cellSize * snapshot.gridWidth;
+        double worldHeight = (double) cellSize * snapshot.gridHeight;
+        
+        int minGridX = (int) Math.floor(minX / cellSize);
+        int minGridY = (int) Math.floor(minY / cellSize);
+        // Never visit a bucket twice, even when the rectangle is wider than the world
+        int maxGridX = Math.min((int) Math.floor(maxX / cellSize), minGridX + snapshot.gridWidth - 1);
+        int maxGridY = Math.min((int) Math.floor(maxY / cellSize), minGridY + snapshot.gridHeight - 1);
+        
+        for (int gridY = minGridY; gridY <= maxGridY; gridY++) {
+            double offsetY = Math.floorDiv(gridY, snapshot.gridHeight) * worldHeight;
+            
+            for (int gridX = minGridX; gridX <= maxGridX; gridX++) {
+                double offsetX = Math.floorDiv(gridX, snapshot.gridWidth) * worldWidth;
+                int bucket = snapshot.bucket(gridX, gridY);
+                int end = snapshot.bucketStart[bucket + 1];
+                
+                for (int k = snapshot.bucketStart[bucket]; k < end; k++) {
+                    int i = snapshot.order[k];
+                    addCandidate(i, snapshot.x[i] + offsetX, snapshot.y[i] + offsetY);
+                }
+            }
+        }
+    }
+    
+    private void addCandidate(int index, double x, double y) {
+        if (candidateCount == candidateIndex.length) {
+            int capacity = candidateCount * 2;
+            candidateIndex = Arrays.copyOf(candidateIndex, capacity);
+            candidateX = Arrays.copyOf(candidateX, capacity);
+            candidateY = Arrays.copyOf(candidateY, capacity);
+        }
+        candidateIndex[candidateCount] = index;
+        candidateX[candidateCount] = x;
+        candidateY[candidateCount] = y;
+        candidateCount++;
+    }
+    
     // === MouseListener ===
     
     @Override
     public void mouseClicked(MouseEvent e) {
-        if (hoveredEntity != null) {
-            System.out.println("Clicked: " + hoveredEntity);
+        long clicked = hoveredId;
+        if (clicked >= 0) {
+            System.out.println("Clicked: entity " + clicked);
             // Future: Could select entity, show more info, etc.
+        } else {
+            // Clicking empty space clears the selection
+            synchronized (this) {
+                pendingSelection = new Rectangle();
+            }
         }
     }
     
     @Override
-    public void mousePressed(MouseEvent e) {
-        // Future: Could implement dragging entities
+    public synchronized void mousePressed(MouseEvent e) {
+        if (e.getButton() != MouseEvent.BUTTON1) return;
+        
+        // Drag selects a rectangle, shift-drag draws a lasso
+        pressed = true;
+        dragging = false;
+        lassoDrag = e.isShiftDown();
+        dragStartX = e.getX();
+        dragStartY = e.getY();
+        lassoPath.reset();
+        lassoPath.moveTo(dragStartX, dragStartY);
     }
     
     @Override
-    public void mouseReleased(MouseEvent e) {
-        // Future: Could implement dragging entities
+    public synchronized void mouseReleased(MouseEvent e) {
+        if (e.getButton() != MouseEvent.BUTTON1) return;
+        
+        if (dragging) {
+            pendingSelection = getSelectionShape();
+        }
+        pressed = false;
+        dragging = false;
     }
     
     @Override
@@ -102,16 +280,23 @@ public class MouseManager implements MouseListener, MouseMotionListener, MouseWh
     @Override
     public void mouseExited(MouseEvent e) {
         mouseInWindow = false;
-        hoveredEntity = null;
+        hoveredId = -1;
     }
     
     // === MouseMotionListener ===
     
     @Override
-    public void mouseDragged(MouseEvent e) {
+    public synchronized void mouseDragged(MouseEvent e) {
         mouseX = e.getX();
         mouseY = e.getY();
-        // Future: Could implement camera panning with drag
+        if (!pressed) return;
+        
+        if (!dragging && Math.abs(mouseX - dragStartX) + Math.abs(mouseY - dragStartY) >= DRAG_THRESHOLD) {
+            dragging = true;
+        }
+        if (dragging && lassoDrag) {
+            lassoPath.lineTo(mouseX, mouseY);
+        }
     }
     
     @Override
@@ -144,8 +329,11 @@ public class MouseManager implements MouseListener, MouseMotionListener, MouseWh
         return mouseY;
     }
     
-    public PhysicsObj getHoveredEntity() {
-        return hoveredEntity;
+    /**
+     * Id of the entity under the cursor, or -1. Look it up in the snapshot being drawn.
+     */
+    public long getHoveredId() {
+        return hoveredId;
     }
     
     public boolean isMouseInWindow() {
@@ -153,6 +341,44 @@ public class MouseManager implements MouseListener, MouseMotionListener, MouseWh
     }
     
     public boolean isHoveringEntity() {
-        return hoveredEntity != null;
+        return hoveredId >= 0;
+    }
+    
+    /**
+     * Screen-space shape of the selection drag in progress, or null when not dragging.
+     */
+    public synchronized Shape getSelectionShape() {
+        if (!dragging) return null;
+        
+        if (lassoDrag) {
+            Path2D.Float lasso = new Path2D.Float(lassoPath);
+            lasso.closePath();
+            return lasso;
+        }
+        return new Rectangle(Math.min(dragStartX, mouseX), Math.min(dragStartY, mouseY),
+                             Math.abs(mouseX - dragStartX), Math.abs(mouseY - dragStartY));
+    }
+    
+    /**
+     * Number of entities picked by the last rectangle or lasso selection that are still in the world
+     * (render thread only).
+     */
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+    
+    /**
+     * Id of the k-th selected entity (render thread only). Look it up in the snapshot being drawn.
+     */
+    public long getSelectedId(int k) {
+        return selectedIds[k];
+    }
+    
+    public int getSelectedCellCount() {
+        return selectedCellCount;
+    }
+    
+    public int getSelectedFoodCount() {
+        return selectedFoodCount;
     }
 }
\ No newline at end of file
@@ -2,7 +2,6 @@
 
 package Cells;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -10,23 +9,24 @@ import java.util.List;
  * Each observer perceives the field differently based on their chemistry.
  */
 public class MultiChannelGradientField {
+    private final SimulationWorld world; // Owner, whose spatial hash sampleWeighted scans
     private final GradientField globalField;
-    private final List<GradientSource> allSources;
     private final int cellSize;
     public static int NUM_CHANNELS = 8;
     
-    public MultiChannelGradientField(int cellSize, int gridWidth, int gridHeight) {
+    public MultiChannelGradientField(SimulationWorld world, int cellSize, int gridWidth, int gridHeight) {
+        this.world = world;
         this.globalField = new GradientField(cellSize, gridWidth, gridHeight, 1000.0, 0.5);
-        this.allSources = new ArrayList<>();
         this.cellSize = cellSize;
     }
     
     /**
      * Add a gradient source (cell or food).
+     * Membership is a flag on the source rather than a set, so adding and removing never hash it.
      */
     public void addSource(GradientSource source) {
         globalField.addSource(source);
-        allSources.add(source);
+        source.inField = true;
     }
     
     /**
@@ -34,7 +34,7 @@ public class MultiChannelGradientField {
      */
     public void removeSource(GradientSource source) {
         globalField.removeSource(source);
-        allSources.remove(source);
+        source.inField = false;
     }
     
     /**
@@ -49,8 +49,6 @@ public class MultiChannelGradientField {
      * This is the KEY method - cells only "see" compatible food sources.
      */
     public GradientSample sampleWeighted(double x, double y, ChemicalSignature observerPreference) {
-        SimulationWorld world = SimulationWorld.getInstance();
-        
         double totalDirX = 0;
         double totalDirY = 0;
         double totalStrength = 0;
@@ -81,7 +79,7 @@ public class MultiChannelGradientField {
                         isCell = false;
                     }
                     
-                    if (source == null || !allSources.contains(source)) continue;
+                    if (source == null || !source.inField) continue;
                     
                     // Calculate direction and distance
                     Vector2D delta = world.getWrappedDelta(x, y, source.x, source.y);
@@ -140,8 +138,12 @@ public class MultiChannelGradientField {
     }
     
     public void clear() {
+        for (List<GradientSource> bucket : globalField.getSourceBuckets()) {
+            for (GradientSource source : bucket) {
+                source.inField = false;
+            }
+        }
         globalField.clear();
-        allSources.clear();
     }
     
     public GradientField getGlobalGradientField() {
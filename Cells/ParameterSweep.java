@@ -0,0 +1,251 @@
+//PARAMETERSWEEP.JAVA
+
+package Cells;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a grid of CellParameters headless, many worlds at once: each run gets its own
+ * SimulationWorld, seeded RNG and pool thread (the world is bound to that thread while it runs).
+ * Every run reports one row of summary metrics; the rows are printed as a table and written to CSV.
+ * A run stops early when its cells die out, since the world would reset itself.
+ * The Profiler must stay off during a sweep: its phases are recorded from one thread only.
+ * Run with: java Cells.ParameterSweep [ticks] [seeds per configuration] [threads] [results.csv]
+ */
+public class ParameterSweep {
+    private final List<Configuration> configurations = new ArrayList<>();
+    private int ticks = 3600;
+    private int seeds = 2;
+    private int gridWidth = 600;
+    private int gridHeight = 600;
+    
+    /**
+     * One point of the grid.
+     */
+    public static class Configuration {
+        public final String name;
+        public final CellParameters parameters;
+        
+        public Configuration(String name, CellParameters parameters) {
+            this.name = name;
+            this.parameters = new CellParameters(parameters);
+        }
+    }
+    
+    /**
+     * Summary of one run, one row of the results table.
+     */
+    public static class Result {
+        public final Configuration configuration;
+        public final long seed;
+        public int ticksRun;
+        public int extinctAt = -1; // Tick the last cell died, -1 if the population survived
+        public int finalCells;
+        public int peakCells;
+        public double meanCells;
+        public double predatorFraction;
+        public long births;
+        public long deaths;
+        public double meanEnergy;
+        public double meanRed;
+        public double meanGreen;
+        public double meanBlue;
+        public double wallSeconds;
+        
+        Result(Configuration configuration, long seed) {
+            this.configuration = configuration;
+            this.seed = seed;
+        }
+    }
+    
+    public ParameterSweep add(String name, CellParameters parameters) {
+        configurations.add(new Configuration(name, parameters));
+        return this;
+    }
+    
+    public ParameterSweep setTicks(int ticks) {
+        this.ticks = ticks;
+        return this;
+    }
+    
+    public ParameterSweep setSeeds(int seeds) {
+        this.seeds = seeds;
+        return this;
+    }
+    
+    public ParameterSweep setGridSize(int gridWidth, int gridHeight) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        return this;
+    }
+    
+    /**
+     * Run every configuration with every seed on a pool of the given size and wait for all of them.
+     *
+     * @return Results in configuration order, then seed order
+     */
+    public List<Result> run(int threads) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ParameterSweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Configuration configuration : configurations) {
+            for (int seed = 0; seed < seeds; seed++) {
+                long runSeed = seed;
+                futures.add(pool.submit(() -> runOne(configuration, runSeed)));
+            }
+        }
+        pool.shutdown();
+        
+        List<Result> results = new ArrayList<>();
+        try {
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+        } catch (java.util.concurrent.ExecutionException e) {
+            pool.shutdownNow();
+            throw new IllegalStateException("Sweep run failed", e.getCause());
+        }
+        return results;
+    }
+    
+    private Result runOne(Configuration configuration, long seed) {
+        long start = System.nanoTime();
+        Result result = new Result(configuration, seed);
+        
+        SimulationWorld world = new SimulationWorld(50, gridWidth, gridHeight, configuration.parameters);
+        world.bindToCurrentThread();
+        try {
+            world.getRandom().setSeed(seed);
+            Ecosystem ecosystem = world.getEcosystem();
+            ecosystem.setVerbose(false);
+            ecosystem.populate();
+            world.processPendingChanges();
+            world.setPaused(false);
+            
+            PopulationMetrics metrics = world.getPopulationMetrics();
+            long cellTicks = 0;
+            for (int tick = 1; tick <= ticks; tick++) {
+                ecosystem.step();
+                
+                int cells = metrics.getCellCount();
+                result.ticksRun = tick;
+                result.births += metrics.getBirths();
+                result.deaths += metrics.getDeaths();
+                result.peakCells = Math.max(result.peakCells, cells);
+                cellTicks += cells;
+                if (cells == 0) {
+                    result.extinctAt = tick;
+                    break;
+                }
+            }
+            
+            result.finalCells = metrics.getCellCount();
+            result.meanCells = (double) cellTicks / Math.max(1, result.ticksRun);
+            result.predatorFraction = metrics.getPredatorFraction();
+            result.meanEnergy = metrics.getMean(PopulationMetrics.ENERGY);
+            result.meanRed = metrics.getMean(PopulationMetrics.RED);
+            result.meanGreen = metrics.getMean(PopulationMetrics.GREEN);
+            result.meanBlue = metrics.getMean(PopulationMetrics.BLUE);
+        } finally {
+            SimulationWorld.unbind();
+        }
+        
+        result.wallSeconds = (System.nanoTime() - start) / 1e9;
+        return result;
+    }
+    
+    private static final String[] COLUMNS = {
+        "configuration", "seed", "ticks", "extinct_at", "final_cells", "peak_cells", "mean_cells",
+        "predator_fraction", "births", "deaths", "mean_energy", "mean_red", "mean_green", "mean_blue", "seconds"
+    };
+    
+    private static Object[] row(Result r) {
+        return new Object[]{
+            r.configuration.name, r.seed, r.ticksRun, r.extinctAt, r.finalCells, r.peakCells, r.meanCells,
+            r.predatorFraction, r.births, r.deaths, r.meanEnergy, r.meanRed, r.meanGreen, r.meanBlue, r.wallSeconds
+        };
+    }
+    
+    /**
+     * Write the results table as CSV (parent directories are created).
+     */
+    public static void writeCsv(List<Result> results, File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println(String.join(",", COLUMNS));
+            for (Result result : results) {
+                StringBuilder line = new StringBuilder();
+                for (Object value : row(result)) {
+                    if (line.length() > 0) line.append(',');
+                    line.append(value instanceof Double ? String.format("%.4f", (Double) value) : String.valueOf(value));
+                }
+                out.println(line);
+            }
+        }
+    }
+    
+    /**
+     * Print the results table to standard output.
+     */
+    public static void printTable(List<Result> results) {
+        System.out.println(String.format("%-24s %4s %6s %7s %6s %6s %8s %6s %7s %7s %7s %6s",
+            "configuration", "seed", "ticks", "extinct", "final", "peak", "mean", "pred", "births", "deaths", "energy", "secs"));
+        for (Result r : results) {
+            System.out.println(String.format("%-24s %4d %6d %7d %6d %6d %8.1f %6.3f %7d %7d %7.1f %6.1f",
+                r.configuration.name, r.seed, r.ticksRun, r.extinctAt, r.finalCells, r.peakCells, r.meanCells,
+                r.predatorFraction, r.births, r.deaths, r.meanEnergy, r.wallSeconds));
+        }
+    }
+    
+    /**
+     * Sweep metabolism exponent x predator mutation rate x reproduction threshold bounds.
+     */
+    public static void main(String[] args) throws Exception {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 3600;
+        int seeds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        File output = new File(args.length > 3 ? args[3] : "sweeps/sweep.csv");
+        
+        ParameterSweep sweep = new ParameterSweep().setTicks(ticks).setSeeds(seeds);
+        double[][] reproductionBounds = {{150, 500}, {200, 400}};
+        for (double exponent : new double[]{1.1, 1.2, 1.3}) {
+            for (double mutation : new double[]{0.01, 0.02, 0.05}) {
+                for (double[] bounds : reproductionBounds) {
+                    String name = String.format("m%.1f_p%.2f_r%.0f-%.0f", exponent, mutation, bounds[0], bounds[1]);
+                    sweep.add(name, new CellParameters()
+                        .setMetabolismExponent(exponent)
+                        .setPredatorMutationRate(mutation)
+                        .setReproductionThresholdBounds(bounds[0], bounds[1]));
+                }
+            }
+        }
+        
+        int runs = sweep.configurations.size() * seeds;
+        System.out.println(String.format("Sweeping %d configurations x %d seeds = %d runs of %d ticks on %d threads",
+            sweep.configurations.size(), seeds, runs, ticks, threads));
+        
+        long start = System.nanoTime();
+        List<Result> results = sweep.run(threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        printTable(results);
+        writeCsv(results, output);
+        System.out.println(String.format("%d runs in %.1f s, results written to %s", runs, seconds, output));
+    }
+}
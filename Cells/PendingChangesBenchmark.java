@@ -0,0 +1,75 @@
+//PENDINGCHANGESBENCHMARK.JAVA
+
+package Cells;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures processPendingChanges with heavy churn: 1,000 deaths and
+ * 1,000 births per tick on a 20,000 food world.
+ * Run with: java Cells.PendingChangesBenchmark [population] [deathsPerTick] [ticks]
+ */
+public class PendingChangesBenchmark {
+    public static void main(String[] args) {
+        int population = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int deathsPerTick = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int warmupTicks = ticks / 4;
+        
+        SimulationWorld.initialize(50, 600, 600);
+        SimulationWorld world = SimulationWorld.getInstance();
+        Random random = new Random(42);
+        
+        for (int i = 0; i < population; i++) {
+            world.queueAddition(spawnFood(world, random));
+        }
+        world.processPendingChanges();
+        
+        long totalNanos = 0;
+        long worstNanos = 0;
+        
+        for (int tick = 0; tick < warmupTicks + ticks; tick++) {
+            // Pick victims outside the timed region (getEntities copies the list)
+            List<PhysicsObj> entities = world.getEntities();
+            List<PhysicsObj> victims = new ArrayList<>(deathsPerTick);
+            for (int i = 0; i < deathsPerTick; i++) {
+                victims.add(entities.get(random.nextInt(entities.size())));
+            }
+            for (PhysicsObj victim : victims) {
+                victim.destroy();
+            }
+            for (int i = 0; i < deathsPerTick; i++) {
+                world.queueAddition(spawnFood(world, random));
+            }
+            
+            long start = System.nanoTime();
+            world.processPendingChanges();
+            long elapsed = System.nanoTime() - start;
+            
+            if (tick >= warmupTicks) {
+                totalNanos += elapsed;
+                worstNanos = Math.max(worstNanos, elapsed);
+            }
+        }
+        
+        System.out.println("=== PENDING CHANGES BENCHMARK ===");
+        System.out.printf("Population: %d  Deaths/births per tick: %d  Ticks: %d%n",
+            world.getEntityCount(), deathsPerTick, ticks);
+        System.out.printf("processPendingChanges: mean %.3f ms, worst %.3f ms%n",
+            totalNanos / 1e6 / ticks, worstNanos / 1e6);
+        System.out.printf("Pool: created %d, reused %d%n",
+            world.getEntityPool().getCreatedCount(), world.getEntityPool().getReusedCount());
+    }
+    
+    private static Food spawnFood(SimulationWorld world, Random random) {
+        Food food = world.getEntityPool().obtainFood(
+            random.nextDouble() * world.getTotalWidth(),
+            random.nextDouble() * world.getTotalHeight(),
+            50
+        );
+        food.setMass(0.5);
+        return food;
+    }
+}
@@ -16,6 +16,24 @@ public abstract class PhysicsObj {
     private double accelerationY;
 
     private Integer spatialHashKey = null;
+    
+    // Set for objects created by an EntityPool, which may recycle them after removal
+    boolean pooled = false;
+    
+    // World this object belongs to, so per-tick code needs no global lookup.
+    // Set by the EntityPool or constructor that creates it, and by SimulationWorld when it is added.
+    SimulationWorld world;
+    
+    // Bookkeeping for SimulationWorld's batched pending-change commit
+    int worldIndex = -1;
+    boolean additionQueued = false;
+    boolean removalQueued = false;
+    boolean collisionPushed = false; // Moved by collisions this tick, waiting to be re-bucketed
+    
+    // Checkpoint tracking: id assigned when the entity enters the world (-1 = not in a world),
+    // and whether its saved state changed since the last checkpoint
+    long entityId = -1;
+    boolean checkpointDirty = false;
 
     private double mass;
     private Color color;
@@ -26,6 +44,13 @@ public abstract class PhysicsObj {
     private double restitution = 1; // Bounciness (0 = no bounce, 1 = perfect bounce)
     
     public PhysicsObj(double x, double y) {
+        resetPhysics(x, y);
+    }
+    
+    /**
+     * Restore the freshly constructed physics state so a pooled object can be reused.
+     */
+    protected void resetPhysics(double x, double y) {
         this.x = x;
         this.y = y;
         this.velocityX = 0;
@@ -36,6 +61,10 @@ public abstract class PhysicsObj {
         this.color = Color.WHITE;
         this.size = 5;
         this.isStatic = false;
+        this.restitution = 1;
+        this.maxVelocity = 10000.0;
+        this.dampingFactor = 1.0;
+        this.spatialHashKey = null;
     }
     
     protected void onAddedToWorld() {}
@@ -48,13 +77,15 @@ public abstract class PhysicsObj {
             return;
         }
         
-        SimulationWorld world = SimulationWorld.getInstance();
         double dt = world.getTimeStep();
         
         velocityX += accelerationX * dt;
         velocityY += accelerationY * dt;
         
         applyVelocityLimiting();
+        if (velocityX != 0 || velocityY != 0) {
+            checkpointDirty = true;
+        }
         
         x += velocityX * dt;
         y += velocityY * dt;
@@ -73,6 +104,7 @@ public abstract class PhysicsObj {
     public void applyForce(double fx, double fy) {
         accelerationX += fx / mass;
         accelerationY += fy / mass;
+        checkpointDirty = true;
     }
     
     public void applyForce(Vector2D force) {
@@ -86,8 +118,6 @@ public abstract class PhysicsObj {
     public void handleCollision(PhysicsObj other) {
         if (this.isStatic && other.isStatic) return;
         
-        SimulationWorld world = SimulationWorld.getInstance();
-        
         // Get wrapped delta (from this to other)
         Vector2D delta = world.getWrappedDelta(this.x, this.y, other.x, other.y);
         double distance = delta.magnitude();
@@ -96,10 +126,15 @@ public abstract class PhysicsObj {
         double minDistance = (this.size + other.size) / 2.0;
         if (distance >= minDistance) return;
         
+        this.checkpointDirty = true;
+        other.checkpointDirty = true;
+        world.recordCollisionPush(this);
+        world.recordCollisionPush(other);
+        
         // Prevent division by zero
         if (distance < 0.1) {
             // Objects are on top of each other - separate randomly
-            double angle = Math.random() * 2 * Math.PI;
+            double angle = world.getRandom().nextDouble() * 2 * Math.PI;
             delta = new Vector2D(Math.cos(angle), Math.sin(angle));
             distance = 0.1;
         }
@@ -203,7 +238,7 @@ public abstract class PhysicsObj {
     }
     
     public void destroy() {
-        SimulationWorld.getInstance().queueRemoval(this);
+        world().queueRemoval(this);
     }
     
     // Getters
@@ -231,16 +266,26 @@ public abstract class PhysicsObj {
     public void setPosition(double x, double y) {
         this.x = x;
         this.y = y;
+        this.checkpointDirty = true;
     }
     
     public void setVelocity(double vx, double vy) {
         this.velocityX = vx;
         this.velocityY = vy;
+        this.checkpointDirty = true;
     }
     
     public void setVelocity(Vector2D velocity) {
-        this.velocityX = velocity.x;
-        this.velocityY = velocity.y;
+        setVelocity(velocity.x, velocity.y);
+    }
+    
+    /**
+     * Overwrite the forces accumulated for the next update (checkpoint restore).
+     */
+    void setAcceleration(double ax, double ay) {
+        this.accelerationX = ax;
+        this.accelerationY = ay;
+        this.checkpointDirty = true;
     }
     
     public void setMass(double mass) {
@@ -248,10 +293,12 @@ public abstract class PhysicsObj {
             throw new IllegalArgumentException("Mass must be positive : " + mass);
         }
         this.mass = mass;
+        this.checkpointDirty = true;
     }
     
     public void setColor(Color color) {
         this.color = color;
+        this.checkpointDirty = true;
     }
     
     public void setSize(int size) {
@@ -259,14 +306,27 @@ public abstract class PhysicsObj {
             throw new IllegalArgumentException("Size must be positive: " + size);
         }
         this.size = size;
+        this.checkpointDirty = true;
     }
     
     public void setStatic(boolean isStatic) {
         this.isStatic = isStatic;
+        this.checkpointDirty = true;
     }
     
     public void setRestitution(double restitution) {
         this.restitution = Math.max(0, Math.min(1, restitution));
+        this.checkpointDirty = true;
+    }
+    
+    public long getEntityId() { return entityId; }
+    
+    /**
+     * The world this object belongs to, falling back to the calling thread's world
+     * for objects that were never given one.
+     */
+    SimulationWorld world() {
+        return world != null ? world : SimulationWorld.getInstance();
     }
 
 
@@ -0,0 +1,154 @@
+//POPULATIONMETRICS.JAVA
+
+package Cells;
+
+import java.util.Arrays;
+
+/**
+ * Population statistics kept as running sums, so reading them costs nothing per entity.
+ * The world reports every entity it adds or removes, and cells report their energy changes;
+ * counts, sums and sums of squares are adjusted by the difference instead of rescanning.
+ * Simulation thread only.
+ */
+public class PopulationMetrics {
+    // Tracked cell values, in column order
+    public static final int RED = 0;
+    public static final int GREEN = 1;
+    public static final int BLUE = 2;
+    public static final int SENSE_RANGE = 3;
+    public static final int MAX_SPEED = 4;
+    public static final int ENERGY = 5;
+    public static final int VALUE_COUNT = 6;
+    public static final String[] VALUE_NAMES = {"red", "green", "blue", "sense_range", "max_speed", "energy"};
+    
+    // Food types 0-3 (red, green, blue, gray dead matter); anything else is counted as other
+    public static final int FOOD_TYPES = 4;
+    
+    private final double[] sums = new double[VALUE_COUNT];
+    private final double[] squares = new double[VALUE_COUNT];
+    private int cells = 0;
+    private int predators = 0;
+    private final int[] foodByType = new int[FOOD_TYPES];
+    private int otherEntities = 0;
+    
+    // Since the last startTick
+    private int births = 0;
+    private int deaths = 0;
+    
+    /**
+     * An entity entered the world. Cells added by the simulation itself (queued additions) count as births.
+     */
+    void entityAdded(PhysicsObj entity, boolean birth) {
+        track(entity);
+        if (birth && entity instanceof Cell) {
+            births++;
+        }
+    }
+    
+    /**
+     * An entity left the world. Every cell removed counts as a death.
+     */
+    void entityRemoved(PhysicsObj entity) {
+        untrack(entity);
+        if (entity instanceof Cell) {
+            deaths++;
+        }
+    }
+    
+    /**
+     * Add an entity's current values to the sums.
+     * Pair with untrack around any change to a tracked value other than energy.
+     */
+    void track(PhysicsObj entity) {
+        adjust(entity, 1);
+    }
+    
+    /**
+     * Take an entity's current values back out of the sums.
+     */
+    void untrack(PhysicsObj entity) {
+        adjust(entity, -1);
+    }
+    
+    /**
+     * A cell in the world changed its energy.
+     */
+    void energyChanged(double before, double after) {
+        sums[ENERGY] += after - before;
+        squares[ENERGY] += after * after - before * before;
+    }
+    
+    private void adjust(PhysicsObj entity, int sign) {
+        if (entity instanceof Cell) {
+            Cell cell = (Cell) entity;
+            cells += sign;
+            if (cell.isPredator()) {
+                predators += sign;
+            }
+            add(RED, cell.getRedEfficiency(), sign);
+            add(GREEN, cell.getGreenEfficiency(), sign);
+            add(BLUE, cell.getBlueEfficiency(), sign);
+            add(SENSE_RANGE, cell.getSenseRange(), sign);
+            add(MAX_SPEED, cell.getMaxSpeed(), sign);
+            add(ENERGY, cell.getEnergy(), sign);
+            
+            // Rounding leaves residue in the sums; an empty population has none
+            if (cells == 0) {
+                Arrays.fill(sums, 0);
+                Arrays.fill(squares, 0);
+            }
+        } else if (entity instanceof Food) {
+            int type = ((Food) entity).getFoodType();
+            if (type >= 0 && type < FOOD_TYPES) {
+                foodByType[type] += sign;
+            } else {
+                otherEntities += sign;
+            }
+        } else {
+            otherEntities += sign;
+        }
+    }
+    
+    private void add(int value, double x, int sign) {
+        sums[value] += sign * x;
+        squares[value] += sign * x * x;
+    }
+    
+    /**
+     * Forget everything (the world was cleared).
+     */
+    void clear() {
+        Arrays.fill(sums, 0);
+        Arrays.fill(squares, 0);
+        Arrays.fill(foodByType, 0);
+        cells = 0;
+        predators = 0;
+        otherEntities = 0;
+    }
+    
+    /**
+     * Open a new tick: births and deaths start counting from zero again.
+     */
+    public void startTick() {
+        births = 0;
+        deaths = 0;
+    }
+    
+    public int getCellCount() { return cells; }
+    public int getPredatorCount() { return predators; }
+    public double getPredatorFraction() { return cells > 0 ? (double) predators / cells : 0; }
+    public int getFoodCount(int type) { return foodByType[type]; }
+    public int getOtherCount() { return otherEntities; }
+    public int getBirths() { return births; }
+    public int getDeaths() { return deaths; }
+    
+    public double getMean(int value) {
+        return cells > 0 ? sums[value] / cells : 0;
+    }
+    
+    public double getVariance(int value) {
+        if (cells == 0) return 0;
+        double mean = sums[value] / cells;
+        return Math.max(0, squares[value] / cells - mean * mean);
+    }
+}
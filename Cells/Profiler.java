@@ -0,0 +1,283 @@
+//PROFILER.JAVA
+
+package Cells;
+
+import java.util.Arrays;
+
+/**
+ * Per-phase timing and allocation for the simulation tick and the render frame.
+ * A phase is timed by one or more begin/end sections, then committed as one sample; stop does
+ * both for a single section. Each section also measures the bytes its thread allocated.
+ * Durations go into a log-bucketed histogram (8 buckets per power of two, so any value is within
+ * about 6% of its bucket's midpoint). Once a second the thread recording a phase turns its
+ * histogram into a Summary (p50, p99, mean, mean bytes allocated) for the UI to read, and starts
+ * a new one.
+ * While disabled, every call returns after one branch: nothing reads the clock or touches a histogram.
+ * Each phase must only be recorded from one thread (sim phases from the sim thread, draw phases
+ * from the render thread).
+ */
+public final class Profiler {
+    public enum Phase {
+        TICK("Tick total"),
+        ENTITY_UPDATE("Entity update"),
+        SPATIAL_HASH("Spatial hash"),
+        COLLISIONS("Collisions"),
+        PENDING_CHANGES("Pending changes"),
+        FOOD_SPAWN("Food spawn"),
+        FRAME("Frame total"),
+        GRADIENT_OVERLAY("Gradient overlay"),
+        ENTITY_DRAW("Entity draw"),
+        UI_DRAW("UI draw");
+        
+        private final String label;
+        
+        Phase(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() { return label; }
+    }
+    
+    /**
+     * One window's statistics for a phase. Immutable, so the UI can read it from any thread.
+     */
+    public static class Summary {
+        public final long count;
+        public final double p50Millis;
+        public final double p99Millis;
+        public final double meanMillis;
+        public final double meanBytes; // Allocated per sample, 0 where the JVM cannot measure it
+        
+        Summary(long count, double p50Millis, double p99Millis, double meanMillis, double meanBytes) {
+            this.count = count;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.meanMillis = meanMillis;
+            this.meanBytes = meanBytes;
+        }
+    }
+    
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    
+    // 8 sub-buckets per power of two: values below 16 ns get a bucket each, then 8 per octave up to 2^63
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR_LIMIT = SUB_COUNT * 2;
+    private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_COUNT;
+    
+    private static volatile boolean enabled = false;
+    private static volatile int generation = 0; // Bumped when profiling is turned on; sections from before are dropped
+    private static final Histogram[] histograms = new Histogram[Phase.values().length];
+    
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+    
+    private Profiler() {
+    }
+    
+    /**
+     * Start a timed section of a phase.
+     */
+    public static void begin(Phase phase) {
+        if (enabled) {
+            histograms[phase.ordinal()].begin();
+        }
+    }
+    
+    /**
+     * End the phase's current section, adding its time and allocation to the pending sample.
+     */
+    public static void end(Phase phase) {
+        if (enabled) {
+            histograms[phase.ordinal()].end();
+        }
+    }
+    
+    /**
+     * Add a section measured by the caller to the phase's pending sample (for sections too
+     * small and numerous to begin and end one by one). Negative values take time back out.
+     */
+    public static void add(Phase phase, long nanos, long bytes) {
+        if (enabled) {
+            histograms[phase.ordinal()].add(nanos, bytes);
+        }
+    }
+    
+    /**
+     * Record the sections since the last commit as one sample of the phase.
+     */
+    public static void commit(Phase phase) {
+        if (enabled) {
+            histograms[phase.ordinal()].commit(System.nanoTime());
+        }
+    }
+    
+    /**
+     * End a single-section phase and record it.
+     */
+    public static void stop(Phase phase) {
+        if (enabled) {
+            Histogram histogram = histograms[phase.ordinal()];
+            histogram.end();
+            histogram.commit(System.nanoTime());
+        }
+    }
+    
+    /**
+     * Turn profiling on or off. Turning it on starts every phase from an empty window.
+     */
+    public static synchronized void setEnabled(boolean on) {
+        if (on && !enabled) {
+            generation++;
+            for (Histogram histogram : histograms) {
+                histogram.resetRequested = true;
+            }
+        }
+        enabled = on;
+    }
+    
+    public static boolean toggle() {
+        setEnabled(!enabled);
+        return enabled;
+    }
+    
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Statistics of the last complete window for a phase, or null if it has none yet.
+     */
+    public static Summary getSummary(Phase phase) {
+        return histograms[phase.ordinal()].summary;
+    }
+    
+    /**
+     * Bucket holding a value: exact below LINEAR_LIMIT, then the top four bits select the bucket.
+     */
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int top = (int) (value >>> (exponent - SUB_BITS)); // SUB_COUNT..2*SUB_COUNT-1
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + (top - SUB_COUNT);
+    }
+    
+    /**
+     * Middle of the range of values that land in a bucket.
+     */
+    static double bucketMidpoint(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long width = 1L << (exponent - SUB_BITS);
+        long lowest = (long) (bucket % SUB_COUNT + SUB_COUNT) << (exponent - SUB_BITS);
+        return lowest + (width - 1) / 2.0;
+    }
+    
+    /**
+     * One phase's open section, pending sample and current window. Written by the recording thread only.
+     */
+    private static class Histogram {
+        private final long[] counts = new long[BUCKET_COUNT];
+        private long total;
+        private long sumNanos;
+        private long sumBytes;
+        private long windowStart;
+        private volatile boolean resetRequested = true;
+        private volatile Summary summary;
+        
+        private long sectionStart; // 0 when no section is open
+        private long sectionBytes;
+        private int sectionGeneration;
+        private long pendingNanos;
+        private long pendingBytes;
+        private int pendingGeneration;
+        private boolean pending;
+        
+        void begin() {
+            sectionGeneration = generation;
+            sectionBytes = AllocationMonitor.threadAllocatedBytes();
+            sectionStart = System.nanoTime();
+        }
+        
+        void end() {
+            long now = System.nanoTime();
+            long bytes = AllocationMonitor.threadAllocatedBytes();
+            if (sectionStart != 0 && sectionGeneration == generation) { // Else begun before profiling was turned on
+                add(now - sectionStart, bytes - sectionBytes);
+            }
+            sectionStart = 0;
+        }
+        
+        void add(long nanos, long bytes) {
+            int current = generation;
+            if (pendingGeneration != current) {
+                pendingGeneration = current;
+                pendingNanos = 0;
+                pendingBytes = 0;
+                pending = false;
+            }
+            pendingNanos += nanos;
+            pendingBytes += bytes;
+            pending = true;
+        }
+        
+        void commit(long now) {
+            if (!pending || pendingGeneration != generation) return;
+            record(Math.max(0, pendingNanos), Math.max(0, pendingBytes), now);
+            pendingNanos = 0;
+            pendingBytes = 0;
+            pending = false;
+        }
+        
+        private void record(long nanos, long bytes, long now) {
+            if (resetRequested) {
+                resetRequested = false;
+                clear();
+                windowStart = now;
+                summary = null;
+            }
+            
+            counts[bucketOf(nanos)]++;
+            total++;
+            sumNanos += nanos;
+            sumBytes += bytes;
+            
+            if (now - windowStart >= WINDOW_NANOS) {
+                summary = summarize();
+                clear();
+                windowStart = now;
+            }
+        }
+        
+        private Summary summarize() {
+            return new Summary(total, percentile(0.50) / 1e6, percentile(0.99) / 1e6,
+                sumNanos / 1e6 / total, (double) sumBytes / total);
+        }
+        
+        private double percentile(double fraction) {
+            long rank = Math.max(1, (long) Math.ceil(total * fraction));
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return bucketMidpoint(bucket);
+                }
+            }
+            return 0;
+        }
+        
+        private void clear() {
+            Arrays.fill(counts, 0);
+            total = 0;
+            sumNanos = 0;
+            sumBytes = 0;
+        }
+    }
+}
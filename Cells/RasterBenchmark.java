@@ -0,0 +1,87 @@
+//RASTERBENCHMARK.JAVA
+
+package Cells;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * Compares drawing small food-sized circles with antialiased Graphics2D.fillOval
+ * against SpriteRaster stamping into the buffer's int[] pixels.
+ * Run with: java Cells.RasterBenchmark [diameterPx]
+ */
+public class RasterBenchmark {
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 1000;
+    private static final int FRAMES = 20;
+    
+    public static void main(String[] args) {
+        int diameter = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        
+        System.out.println("=== SMALL ENTITY RASTER BENCHMARK ===");
+        System.out.printf("Buffer: %dx%d ARGB  Diameter: %d px  Frames: %d%n", WIDTH, HEIGHT, diameter, FRAMES);
+        
+        for (int count : new int[] { 20_000, 200_000 }) {
+            int[] xs = new int[count];
+            int[] ys = new int[count];
+            int[] colors = new int[count];
+            Random random = new Random(7);
+            for (int i = 0; i < count; i++) {
+                xs[i] = random.nextInt(WIDTH);
+                ys[i] = random.nextInt(HEIGHT);
+                colors[i] = 0xFF000000 | random.nextInt(0x1000000);
+            }
+            
+            double java2d = benchmarkJava2D(xs, ys, colors, diameter);
+            double raster = benchmarkRaster(xs, ys, colors, diameter);
+            
+            System.out.printf("%,9d entities: fillOval %8.2f ms/frame  raster %8.2f ms/frame  (%.1fx)%n",
+                count, java2d, raster, java2d / raster);
+        }
+    }
+    
+    private static double benchmarkJava2D(int[] xs, int[] ys, int[] colors, int diameter) {
+        BufferedImage buffer = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = buffer.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        
+        // Built up front, as the Displayer gets its colors from the entities and ColorPalette
+        Color[] paints = new Color[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            paints[i] = new Color(colors[i], true);
+        }
+        
+        long best = Long.MAX_VALUE;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < xs.length; i++) {
+                g2.setColor(paints[i]);
+                g2.fillOval(xs[i], ys[i], diameter, diameter);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        g2.dispose();
+        return best / 1e6;
+    }
+    
+    private static double benchmarkRaster(int[] xs, int[] ys, int[] colors, int diameter) {
+        BufferedImage buffer = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
+        SpriteRaster raster = new SpriteRaster();
+        
+        long best = Long.MAX_VALUE;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < xs.length; i++) {
+                raster.stamp(pixels, WIDTH, HEIGHT, xs[i], ys[i], diameter, colors[i]);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+}
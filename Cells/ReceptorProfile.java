@@ -2,6 +2,8 @@
 
 package Cells;
 
+import java.util.Random;
+
 /**
  * Represents a cell's receptor sensitivity profile across food signal channels.
  * Note: This only covers FOOD channels (7 total), not the cell repulsion channel.
@@ -15,8 +17,9 @@ public class ReceptorProfile {
         this.sensitivities = new double[NUM_FOOD_CHANNELS];
         
         // Initialize with random sensitivities
+        Random random = SimulationWorld.getInstance().getRandom();
         for (int i = 0; i < sensitivities.length; i++) {
-            sensitivities[i] = Math.random() * 0.5 + 0.25; // Start 0.25-0.75
+            sensitivities[i] = random.nextDouble() * 0.5 + 0.25; // Start 0.25-0.75
         }
     }
     
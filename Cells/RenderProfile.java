@@ -0,0 +1,63 @@
+//RENDERPROFILE.JAVA
+
+package Cells;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Render quality presets for the Displayer.
+ * Each profile picks the back buffer type, the Java2D hints and how entities
+ * smaller than a pixel are drawn.
+ */
+public enum RenderProfile {
+    // Translucent buffer, antialiasing and quality hints; sub-pixel entities get the one-pixel sprite as before
+    QUALITY(BufferedImage.TYPE_INT_ARGB, true, true, false),
+    // Opaque buffer, antialiased shapes with speed hints; sub-pixel entities are single pixels
+    BALANCED(BufferedImage.TYPE_INT_RGB, true, false, true),
+    // Opaque buffer, no antialiasing at all; sub-pixel entities are single pixels
+    FAST(BufferedImage.TYPE_INT_RGB, false, false, true);
+
+    private final int bufferType;
+    private final boolean antialiasing;
+    private final boolean qualityRendering;
+    private final boolean subPixelAsPoint;
+
+    RenderProfile(int bufferType, boolean antialiasing, boolean qualityRendering, boolean subPixelAsPoint) {
+        this.bufferType = bufferType;
+        this.antialiasing = antialiasing;
+        this.qualityRendering = qualityRendering;
+        this.subPixelAsPoint = subPixelAsPoint;
+    }
+
+    /**
+     * Set this profile's rendering hints on a graphics context.
+     */
+    public void applyHints(Graphics2D g2) {
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                           antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                           antialiasing ? RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING,
+                           qualityRendering ? RenderingHints.VALUE_RENDER_QUALITY : RenderingHints.VALUE_RENDER_SPEED);
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                           qualityRendering ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+                                            : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+                           qualityRendering ? RenderingHints.VALUE_STROKE_DEFAULT : RenderingHints.VALUE_STROKE_NORMALIZE);
+    }
+
+    /**
+     * The profile after this one, wrapping around.
+     */
+    public RenderProfile next() {
+        RenderProfile[] profiles = values();
+        return profiles[(ordinal() + 1) % profiles.length];
+    }
+
+    // Getters
+    public int getBufferType() { return bufferType; }
+    public boolean isAntialiasing() { return antialiasing; }
+    public boolean isSubPixelAsPoint() { return subPixelAsPoint; }
+}
@@ -0,0 +1,152 @@
+//REPLAYRUNNER.JAVA
+
+package Cells;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Re-drives a world from a recording made by InputJournal: loads the starting snapshot, then
+ * runs the same ticks as the live loop, applying each journaled input before the tick it was
+ * applied before originally. The world's RNG, the checkpoint format and the id-ordered spatial
+ * buckets make the result identical to the recorded run.
+ * Keyframes (full checkpoints) are written every keyframeInterval ticks while playing, so seek
+ * can jump to any tick from the nearest keyframe before it instead of from the start.
+ * Runs inside the app (driven by Main's tick) or headless from the command line:
+ *   java Cells.ReplayRunner <recording directory> [tick to stop at] [checkpoint file to write there]
+ */
+public class ReplayRunner {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 1800; // Ticks, 30 seconds
+    
+    private final File directory;
+    private final InputJournal.Recording recording;
+    private final int keyframeInterval;
+    private final File keyframeDirectory;
+    private final TreeMap<Integer, File> keyframes = new TreeMap<>(); // Tick -> checkpoint taken after it
+    
+    private int nextEntry = 0;
+    private int positionedAt = -1; // Tick this runner last left the world at, -1 before start
+    
+    /**
+     * @param directory Recording directory written by InputJournal
+     * @param keyframeInterval Ticks between keyframes, 0 for none
+     */
+    public ReplayRunner(File directory, int keyframeInterval) throws IOException {
+        this.directory = directory;
+        this.recording = InputJournal.read(directory);
+        this.keyframeInterval = keyframeInterval;
+        this.keyframeDirectory = new File(directory, "keyframes");
+        
+        // Keyframes from an earlier replay may come from different code, don't trust them
+        File[] stale = keyframeDirectory.listFiles();
+        if (stale != null) {
+            for (File file : stale) {
+                file.delete();
+            }
+        }
+        keyframes.put(recording.startTick, new File(directory, InputJournal.START_FILE));
+    }
+    
+    /**
+     * Replace the world's contents with the state the recording started from.
+     * Call with the world's tick lock held.
+     */
+    public void start(SimulationWorld world) throws IOException {
+        seek(world, recording.startTick);
+    }
+    
+    /**
+     * Apply the inputs journaled for the current tick, then run it.
+     * Call with the world's tick lock held, on a world positioned by start or seek.
+     *
+     * @return false once the end of the recording has been reached (nothing is run then)
+     */
+    public boolean step(SimulationWorld world) throws IOException {
+        int tick = world.getEcosystem().getCycles();
+        if (tick >= recording.endTick) {
+            return false;
+        }
+        
+        List<InputJournal.Entry> entries = recording.entries;
+        while (nextEntry < entries.size() && entries.get(nextEntry).tick == tick) {
+            entries.get(nextEntry++).command.apply(world);
+        }
+        Main.simulateTick(world);
+        
+        int done = world.getEcosystem().getCycles();
+        positionedAt = done;
+        if (keyframeInterval > 0 && (done - recording.startTick) % keyframeInterval == 0 && !keyframes.containsKey(done)) {
+            File keyframe = new File(keyframeDirectory, "tick_" + done + ".world");
+            WorldCheckpoint.save(world, keyframe);
+            keyframes.put(done, keyframe);
+        }
+        return true;
+    }
+    
+    /**
+     * Position the world at the given tick of the recording (clamped to its range): continues
+     * from the current tick if that is on the way, otherwise loads the nearest keyframe before it.
+     * Call with the world's tick lock held.
+     */
+    public void seek(SimulationWorld world, int tick) throws IOException {
+        tick = Math.max(recording.startTick, Math.min(recording.endTick, tick));
+        
+        Map.Entry<Integer, File> keyframe = keyframes.floorEntry(tick);
+        int current = world.getEcosystem().getCycles();
+        boolean onTheWay = current == positionedAt && current <= tick && current >= keyframe.getKey();
+        if (!onTheWay) {
+            WorldCheckpoint.load(world, keyframe.getValue());
+            positionedAt = keyframe.getKey();
+            
+            // First entry at or after the keyframe's tick
+            nextEntry = 0;
+            while (nextEntry < recording.entries.size() && recording.entries.get(nextEntry).tick < keyframe.getKey()) {
+                nextEntry++;
+            }
+        }
+        
+        while (world.getEcosystem().getCycles() < tick) {
+            step(world);
+        }
+    }
+    
+    public int getStartTick() { return recording.startTick; }
+    public int getEndTick() { return recording.endTick; }
+    public int getInputCount() { return recording.entries.size(); }
+    public File getDirectory() { return directory; }
+    
+    /**
+     * Headless fast-forward: replay a recording as fast as possible and report the rate.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java Cells.ReplayRunner <recording directory> [tick to stop at] [checkpoint file to write there]");
+            return;
+        }
+        
+        SimulationWorld.initialize(50, 600, 600);
+        SimulationWorld world = SimulationWorld.getInstance();
+        
+        ReplayRunner replay = new ReplayRunner(new File(args[0]), DEFAULT_KEYFRAME_INTERVAL);
+        int target = args.length > 1 ? Integer.parseInt(args[1]) : replay.getEndTick();
+        System.out.println(String.format("Replaying %s: ticks %d-%d, %d inputs",
+            args[0], replay.getStartTick(), replay.getEndTick(), replay.getInputCount()));
+        
+        long start = System.nanoTime();
+        replay.start(world);
+        replay.seek(world, target);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int ticks = world.getEcosystem().getCycles() - replay.getStartTick();
+        System.out.println(String.format("Reached tick %d with %d entities in %.1f s (%.0f ticks/s)",
+            world.getEcosystem().getCycles(), world.getEntityCount(), seconds, ticks / seconds));
+        
+        if (args.length > 2) {
+            long bytes = WorldCheckpoint.save(world, new File(args[2]));
+            System.out.println(String.format("Saved %.1f MB to %s", bytes / 1e6, args[2]));
+        }
+        System.exit(0);
+    }
+}
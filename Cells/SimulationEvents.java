@@ -0,0 +1,137 @@
+//SIMULATIONEVENTS.JAVA
+
+package Cells;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event types for the simulation, so a recording shows tick phases, collision
+ * passes, add/remove batches and cell lifecycle next to the JVM's own GC and CPU events.
+ * They cost nothing unless a recording enables them; record with e.g.
+ *   java -XX:StartFlightRecording=filename=cells.jfr Cells.Main
+ * and open the file in JDK Mission Control (event browser, "Cells" category).
+ * Timed events use begin/commit around the work; the rest are instants.
+ */
+public final class SimulationEvents {
+    private SimulationEvents() {
+    }
+    
+    @Name("Cells.UpdatePhase")
+    @Label("Update Phase")
+    @Category({"Cells", "Simulation"})
+    @Description("One phase of SimulationWorld.update")
+    @StackTrace(false)
+    public static class UpdatePhase extends Event {
+        @Label("Phase")
+        public String phase;
+        
+        @Label("Tick")
+        public int tick;
+        
+        @Label("Entities")
+        public int entities;
+    }
+    
+    @Name("Cells.CollisionIteration")
+    @Label("Collision Iteration")
+    @Category({"Cells", "Simulation"})
+    @Description("One pass of handleCollisions over every entity")
+    @StackTrace(false)
+    public static class CollisionIteration extends Event {
+        @Label("Tick")
+        public int tick;
+        
+        @Label("Iteration")
+        public int iteration;
+        
+        @Label("Pairs Checked")
+        public int pairsChecked;
+        
+        @Label("Collisions")
+        public int collisions;
+    }
+    
+    @Name("Cells.PendingChanges")
+    @Label("Pending Changes")
+    @Category({"Cells", "Simulation"})
+    @Description("A batch of queued additions and removals applied by processPendingChanges")
+    @StackTrace(false)
+    public static class PendingChanges extends Event {
+        @Label("Tick")
+        public int tick;
+        
+        @Label("Additions")
+        public int additions;
+        
+        @Label("Removals")
+        public int removals;
+        
+        @Label("Entities After")
+        public int entities;
+    }
+    
+    @Name("Cells.CellReproduced")
+    @Label("Cell Reproduced")
+    @Category({"Cells", "Lifecycle"})
+    @StackTrace(false)
+    public static class CellReproduced extends Event {
+        @Label("Parent Id")
+        public long parentId;
+        
+        @Label("Parent Age")
+        public int parentAge;
+        
+        @Label("Parent Energy")
+        @Description("Energy left after paying for the offspring")
+        public double parentEnergy;
+        
+        @Label("Predator")
+        public boolean predator;
+        
+        @Label("Offspring Predator")
+        public boolean offspringPredator;
+    }
+    
+    @Name("Cells.CellDestroyed")
+    @Label("Cell Destroyed")
+    @Category({"Cells", "Lifecycle"})
+    @Description("A cell starved or was eaten; it leaves the world at the end of the tick")
+    @StackTrace(false)
+    public static class CellDestroyed extends Event {
+        @Label("Entity Id")
+        public long entityId;
+        
+        @Label("Age")
+        public int age;
+        
+        @Label("Energy")
+        public double energy;
+        
+        @Label("Predator")
+        public boolean predator;
+        
+        @Label("Dead Matter Dropped")
+        public boolean deadMatterDropped;
+    }
+    
+    @Name("Cells.EnvironmentalShift")
+    @Label("Environmental Shift")
+    @Category({"Cells", "Simulation"})
+    @StackTrace(false)
+    public static class EnvironmentalShift extends Event {
+        @Label("Tick")
+        public int tick;
+        
+        @Label("Dominant Food Type")
+        @Description("0 red, 1 green, 2 blue")
+        public int dominantFoodType;
+        
+        @Label("Cells")
+        public int cells;
+    }
+}
@@ -130,7 +130,7 @@ public class SimulationInterface {
                     comps[i] = (phase + 1.0) / 2.0;
                     
                     // Add some noise
-                    comps[i] += (Math.random() - 0.5) * 0.2;
+                    comps[i] += (world.getRandom().nextDouble() - 0.5) * 0.2;
                     comps[i] = Math.max(0, Math.min(1, comps[i]));
                 }
                 
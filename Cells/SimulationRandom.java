@@ -0,0 +1,86 @@
+//SIMULATIONRANDOM.JAVA
+
+package Cells;
+
+import java.util.Random;
+
+/**
+ * java.util.Random with its generator state exposed, so checkpoints can save and restore it.
+ * Produces exactly the same sequence as java.util.Random for the same seed.
+ */
+public class SimulationRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+    
+    // No initializers: Random's constructor calls setSeed before subclass fields are initialized
+    private long seed;
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+    
+    public SimulationRandom() {
+        super();
+    }
+    
+    public SimulationRandom(long seed) {
+        super(seed);
+    }
+    
+    @Override
+    public synchronized void setSeed(long seed) {
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+        this.haveNextNextGaussian = false;
+    }
+    
+    @Override
+    protected int next(int bits) {
+        seed = (seed * MULTIPLIER + ADDEND) & MASK;
+        return (int) (seed >>> (48 - bits));
+    }
+    
+    /**
+     * Same polar method as java.util.Random, with the spare value kept where getState can see it.
+     */
+    @Override
+    public synchronized double nextGaussian() {
+        if (haveNextNextGaussian) {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+        
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+    
+    /**
+     * Raw 48-bit generator state.
+     */
+    public long getState() {
+        return seed;
+    }
+    
+    /**
+     * Spare Gaussian value, or NaN if none is pending.
+     */
+    public double getPendingGaussian() {
+        return haveNextNextGaussian ? nextNextGaussian : Double.NaN;
+    }
+    
+    /**
+     * Continue the sequence from a state saved with getState and getPendingGaussian.
+     */
+    public synchronized void restoreState(long state, double pendingGaussian) {
+        this.seed = state & MASK;
+        this.haveNextNextGaussian = !Double.isNaN(pendingGaussian);
+        this.nextNextGaussian = haveNextNextGaussian ? pendingGaussian : 0;
+    }
+}
@@ -3,54 +3,90 @@
 package Cells;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Simulation world with multi-channel gradient system and auto-reset.
+ * The app runs one process-wide world (initialize / getInstance). Headless runs such as parameter
+ * sweeps construct their own worlds; entities keep a reference to the world they belong to, so
+ * per-tick code never looks a world up. Binding a world to its thread covers the remaining
+ * getInstance callers (construction-time randomness, UI) for worlds running side by side.
  */
 public class SimulationWorld {
     private static SimulationWorld instance;
+    private static final ThreadLocal<SimulationWorld> boundWorld = new ThreadLocal<>();
+    private static volatile boolean anyBound = false; // Skips the ThreadLocal lookup until a world is bound
 
     private Displayer displayer;
     
     private final MultiChannelGradientField multiChannelField;
     
     private final Map<Integer, List<PhysicsObj>> entitySpatialHash;
+    private final CellSizeIndex cellSizeIndex;
     private final int cellSize;
     private final int gridWidth;
     private final int gridHeight;
     private final int totalWidth;
     private final int totalHeight;
     
-    private final List<PhysicsObj> entities;
-    private final Set<PhysicsObj> pendingAdditions;
-    private final Set<PhysicsObj> pendingRemovals;
-    private final Random random;
-    
-    private double timeStep;
-    private boolean paused;
+    private final ArrayList<PhysicsObj> entities;
+    private final List<PhysicsObj> pendingAdditions;
+    private final List<PhysicsObj> pendingRemovals;
+    private final List<PhysicsObj> pushedEntities = new ArrayList<>(); // Moved by collisions, see recordCollisionPush
+    private final EntityPool entityPool;
+    private final SnapshotBuffer snapshotBuffer;
+    private final ReentrantLock tickLock;
+    private final SimulationRandom random;
+    private final PopulationMetrics populationMetrics = new PopulationMetrics();
+    private final Ecosystem ecosystem;
+    private final CellParameters cellParameters;
+    
+    private volatile double timeStep;
+    private volatile boolean paused;
     
     private int frameCount = 0;
     
     private boolean collisionsEnabled = true;
     
+    // Checkpoint tracking: ids removed since the last checkpoint, and whether only a full one will do.
+    // Removals are only recorded while a delta could follow, i.e. after a chain's base has been written.
+    private static final int MAX_REMOVED_IDS = 1 << 20; // 8 MB of ids; a delta that size would outgrow its base
+    private long nextEntityId = 0;
+    private long[] removedIds = new long[256];
+    private int removedCount = 0;
+    private boolean baseCheckpointRequired = true;
+    
     // Auto-reset tracking
     private int framesWithoutCells = 0;
     private static final int RESET_AFTER_FRAMES = 10; // 5 seconds at 60 FPS
     
-    private SimulationWorld(int cellSize, int gridWidth, int gridHeight) {
+    private static final Comparator<PhysicsObj> SPATIAL_KEY_ORDER =
+        Comparator.comparingInt(PhysicsObj::getSpatialHashKey);
+    
+    public SimulationWorld(int cellSize, int gridWidth, int gridHeight) {
+        this(cellSize, gridWidth, gridHeight, new CellParameters());
+    }
+    
+    public SimulationWorld(int cellSize, int gridWidth, int gridHeight, CellParameters cellParameters) {
         this.cellSize = cellSize;
         this.gridWidth = gridWidth;
         this.gridHeight = gridHeight;
         this.totalWidth = cellSize * gridWidth;
         this.totalHeight = cellSize * gridHeight;
         
-        this.multiChannelField = new MultiChannelGradientField(cellSize, gridWidth, gridHeight);
+        this.multiChannelField = new MultiChannelGradientField(this, cellSize, gridWidth, gridHeight);
         
         this.entitySpatialHash = new HashMap<>();
+        this.cellSizeIndex = new CellSizeIndex();
         this.entities = new ArrayList<>();
-        this.pendingAdditions = new HashSet<>();
-        this.pendingRemovals = new HashSet<>();
-        this.random = new Random();
+        this.pendingAdditions = new ArrayList<>();
+        this.pendingRemovals = new ArrayList<>();
+        this.entityPool = new EntityPool(this);
+        this.snapshotBuffer = new SnapshotBuffer();
+        this.tickLock = new ReentrantLock(true); // Fair, so the renderer isn't starved by back-to-back ticks
+        this.random = new SimulationRandom();
+        this.ecosystem = new Ecosystem(this);
+        this.cellParameters = new CellParameters(cellParameters);
         
         this.timeStep = 0.1;
         this.paused = true;
@@ -63,47 +99,252 @@ public class SimulationWorld {
         instance = new SimulationWorld(cellSize, gridWidth, gridHeight);
     }
     
+    /**
+     * The world bound to the calling thread, or else the process-wide world.
+     */
     public static SimulationWorld getInstance() {
+        if (anyBound) {
+            SimulationWorld bound = boundWorld.get();
+            if (bound != null) {
+                return bound;
+            }
+        }
         if (instance == null) {
             throw new IllegalStateException("SimulationWorld not initialized");
         }
         return instance;
     }
     
+    /**
+     * Make getInstance return this world on the calling thread, until unbind.
+     * A world must only be run by the thread it is bound to.
+     */
+    public void bindToCurrentThread() {
+        anyBound = true;
+        boundWorld.set(this);
+    }
+    
+    public static void unbind() {
+        boundWorld.remove();
+    }
+    
     public void addEntity(PhysicsObj entity) {
+        entity.world = this;
+        assignEntityId(entity);
+        entity.worldIndex = entities.size();
         entities.add(entity);
         addToSpatialHash(entity);
+        populationMetrics.entityAdded(entity, false);
         entity.onAddedToWorld();
     }
     
+    /**
+     * Add a batch of entities right away, in order, as addEntity would one by one but growing
+     * the entity list once. Like addEntity, and unlike queued additions, these are not births.
+     * Entities keep any ids they carry (restored from a checkpoint), so those must come in
+     * ascending id order and above every id already present.
+     */
+    public void addEntities(List<? extends PhysicsObj> batch) {
+        entities.ensureCapacity(entities.size() + batch.size());
+        for (PhysicsObj entity : batch) {
+            entity.world = this;
+            assignEntityId(entity);
+            entity.worldIndex = entities.size();
+            entities.add(entity);
+            addToSpatialHash(entity);
+            populationMetrics.entityAdded(entity, false);
+            entity.onAddedToWorld();
+        }
+    }
+    
     public void queueAddition(PhysicsObj entity) {
+        if (entity.additionQueued) return;
+        entity.world = this;
+        entity.additionQueued = true;
         pendingAdditions.add(entity);
     }
     
     public void queueRemoval(PhysicsObj entity) {
+        if (entity.removalQueued) return;
+        entity.removalQueued = true;
         pendingRemovals.add(entity);
     }
     
+    /**
+     * Apply queued additions and removals as one batch.
+     * Additions are inserted grouped by spatial cell; removals are marked and
+     * the entity list is compacted in a single pass, so k removals cost O(n + k).
+     */
     public void processPendingChanges() {
+        if (pendingAdditions.isEmpty() && pendingRemovals.isEmpty()) return;
+        
+        SimulationEvents.PendingChanges event = new SimulationEvents.PendingChanges();
+        event.begin();
+        event.additions = pendingAdditions.size();
+        event.removals = pendingRemovals.size();
+        
+        if (!pendingAdditions.isEmpty()) {
+            commitAdditions();
+        }
+        if (!pendingRemovals.isEmpty()) {
+            commitRemovals();
+        }
+        
+        if (event.shouldCommit()) {
+            event.tick = frameCount;
+            event.entities = entities.size();
+            event.commit();
+        }
+    }
+    
+    /**
+     * Publish the current entity state for the render thread.
+     * Call once per tick, after processPendingChanges.
+     */
+    public void publishSnapshot() {
+        snapshotBuffer.publish(entities, frameCount, cellSize, gridWidth, gridHeight);
+    }
+    
+    private void commitAdditions() {
         for (PhysicsObj entity : pendingAdditions) {
-            addEntity(entity);
+            entity.additionQueued = false;
+            entity.setSpatialHashKey(getSpatialHash(entity.getX(), entity.getY()));
+        }
+        pendingAdditions.sort(SPATIAL_KEY_ORDER);
+        
+        // Consecutive additions share a bucket, so look each one up only once
+        int currentHash = -1;
+        List<PhysicsObj> bucket = null;
+        
+        for (PhysicsObj entity : pendingAdditions) {
+            int hash = entity.getSpatialHashKey();
+            if (bucket == null || hash != currentHash) {
+                currentHash = hash;
+                bucket = entitySpatialHash.computeIfAbsent(hash, k -> new ArrayList<>());
+            }
+            assignEntityId(entity);
+            insertById(bucket, entity);
+            if (entity instanceof Cell) {
+                cellSizeIndex.add((Cell) entity, hash);
+            }
+            
+            entity.worldIndex = entities.size();
+            entities.add(entity);
+            populationMetrics.entityAdded(entity, true);
         }
-        pendingAdditions.clear();
         
+        for (PhysicsObj entity : pendingAdditions) {
+            entity.onAddedToWorld();
+        }
+        pendingAdditions.clear();
+    }
+    
+    private void commitRemovals() {
+        // Mark phase: entities stay flagged with removalQueued only if they are in the world
+        int markedCount = 0;
         for (PhysicsObj entity : pendingRemovals) {
-            if (entities.contains(entity)) {
+            int index = entity.worldIndex;
+            if (index >= 0 && index < entities.size() && entities.get(index) == entity) {
                 removeFromSpatialHash(entity);
-                entities.remove(entity);
-                entity.onRemovedFromWorld();
+                markedCount++;
+            } else {
+                entity.removalQueued = false;
+            }
+        }
+        
+        // Compact phase: one pass over the entity list
+        if (markedCount > 0) {
+            int write = 0;
+            for (int read = 0; read < entities.size(); read++) {
+                PhysicsObj entity = entities.get(read);
+                if (entity.removalQueued) continue;
+                
+                entity.worldIndex = write;
+                entities.set(write++, entity);
             }
+            entities.subList(write, entities.size()).clear();
+        }
+        
+        for (PhysicsObj entity : pendingRemovals) {
+            if (!entity.removalQueued) continue;
+            
+            entity.removalQueued = false;
+            entity.worldIndex = -1;
+            recordRemoval(entity);
+            populationMetrics.entityRemoved(entity);
+            entity.onRemovedFromWorld();
+            entityPool.release(entity);
         }
         pendingRemovals.clear();
     }
     
+    /**
+     * Give an entity entering the world its id, unless it carries one restored from a checkpoint.
+     * Ids ascend in entity-list order: entities are appended as they get ids, compaction keeps the
+     * order and checkpoints restore it. Checkpoint deltas and snapshot lookups rely on that.
+     * New entities are dirty: the next checkpoint has to write them.
+     */
+    private void assignEntityId(PhysicsObj entity) {
+        if (entity.entityId < 0) {
+            entity.entityId = nextEntityId++;
+        }
+        entity.checkpointDirty = true;
+    }
+    
+    /**
+     * Remember a removed entity's id for the next checkpoint delta. Without a chain to extend
+     * nothing is kept, and a list grown past MAX_REMOVED_IDS is dropped in favour of a new base.
+     */
+    private void recordRemoval(PhysicsObj entity) {
+        if (!baseCheckpointRequired) {
+            if (removedCount == MAX_REMOVED_IDS) {
+                removedCount = 0;
+                baseCheckpointRequired = true;
+            } else {
+                if (removedCount == removedIds.length) {
+                    removedIds = Arrays.copyOf(removedIds, removedCount * 2);
+                }
+                removedIds[removedCount++] = entity.entityId;
+            }
+        }
+        entity.entityId = -1;
+    }
+    
+    /**
+     * Move an entity whose position was overwritten in place (by a checkpoint delta) to its new bucket.
+     */
+    void relocate(PhysicsObj entity, double oldX, double oldY) {
+        updateSpatialHash(entity, oldX, oldY);
+    }
+    
     private void addToSpatialHash(PhysicsObj entity) {
         int hash = getSpatialHash(entity.getX(), entity.getY());
         entity.setSpatialHashKey(hash);
-        entitySpatialHash.computeIfAbsent(hash, k -> new ArrayList<>()).add(entity);
+        insertById(entitySpatialHash.computeIfAbsent(hash, k -> new ArrayList<>()), entity);
+        
+        if (entity instanceof Cell) {
+            cellSizeIndex.add((Cell) entity, hash);
+        }
+    }
+    
+    /**
+     * Insert into a bucket kept in entity id order. Bucket order then depends only on which
+     * entities are in it, not on the order they moved in, so a world loaded from a checkpoint
+     * iterates its neighbours exactly like the world that saved it.
+     */
+    static <T extends PhysicsObj> void insertById(List<T> bucket, T entity) {
+        long id = entity.entityId;
+        int low = 0;
+        int high = bucket.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bucket.get(mid).entityId < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        bucket.add(low, entity);
     }
     
     private void removeFromSpatialHash(PhysicsObj entity) {
@@ -118,6 +359,10 @@ public class SimulationWorld {
             }
         }
         entity.setSpatialHashKey(null);
+        
+        if (entity instanceof Cell) {
+            cellSizeIndex.remove((Cell) entity);
+        }
     }
     
     private void updateSpatialHash(PhysicsObj entity, double oldX, double oldY) {
@@ -135,9 +380,14 @@ public class SimulationWorld {
                 }
             }
             
-            entitySpatialHash.computeIfAbsent(newHash, k -> new ArrayList<>()).add(entity);
+            insertById(entitySpatialHash.computeIfAbsent(newHash, k -> new ArrayList<>()), entity);
             entity.setSpatialHashKey(newHash);
         }
+        
+        // Size can change too, so always let the index check the size class
+        if (entity instanceof Cell) {
+            cellSizeIndex.update((Cell) entity, newHash);
+        }
     }
     
     private int getSpatialHash(double x, double y) {
@@ -152,6 +402,22 @@ public class SimulationWorld {
         return cell != null ? new ArrayList<>(cell) : new ArrayList<>();
     }
     
+    /**
+     * Get the live entity bucket for a grid cell without copying.
+     * Callers must not modify the list or add/remove entities while iterating.
+     */
+    public List<PhysicsObj> getSpatialBucket(int gridX, int gridY) {
+        List<PhysicsObj> cell = entitySpatialHash.get(gridX + gridY * gridWidth);
+        return cell != null ? cell : Collections.emptyList();
+    }
+    
+    /**
+     * Get the live list of Cells of one size class in a grid cell.
+     */
+    public List<Cell> getCellsInSpatialCell(int gridX, int gridY, int sizeClass) {
+        return cellSizeIndex.getCells(gridX + gridY * gridWidth, sizeClass);
+    }
+    
     public void update() {
         if (paused) return;
         
@@ -169,19 +435,84 @@ public class SimulationWorld {
             framesWithoutCells = 0;
         }
         
-        // Update all entities
+        // Update all entities. Each one is re-bucketed right after it moves, since the entities
+        // after it look it up by bucket; the profiler times the two parts separately. Allocation
+        // is only read around the whole loop, so what the re-bucketing allocates counts as update
+        SimulationEvents.UpdatePhase updateEvent = new SimulationEvents.UpdatePhase();
+        updateEvent.begin();
+        Profiler.begin(Profiler.Phase.ENTITY_UPDATE);
+        long hashNanos = Profiler.isEnabled() ? updateEntitiesTimed() : updateEntities();
+        Profiler.end(Profiler.Phase.ENTITY_UPDATE);
+        commitPhaseEvent(updateEvent, "entity update");
+        Profiler.add(Profiler.Phase.ENTITY_UPDATE, -hashNanos, 0); // Measured inside the loop above
+        Profiler.commit(Profiler.Phase.ENTITY_UPDATE);
+        Profiler.add(Profiler.Phase.SPATIAL_HASH, hashNanos, 0);
+        
+        // Handle collisions
+        if (collisionsEnabled) {
+            SimulationEvents.UpdatePhase collisionEvent = new SimulationEvents.UpdatePhase();
+            collisionEvent.begin();
+            Profiler.begin(Profiler.Phase.COLLISIONS);
+            handleCollisions();
+            Profiler.stop(Profiler.Phase.COLLISIONS);
+            commitPhaseEvent(collisionEvent, "collisions");
+            
+            // Collisions push entities without re-bucketing them; catch up on the ones they moved
+            // so the buckets match positions between ticks
+            SimulationEvents.UpdatePhase rebucketEvent = new SimulationEvents.UpdatePhase();
+            rebucketEvent.begin();
+            Profiler.begin(Profiler.Phase.SPATIAL_HASH);
+            for (PhysicsObj entity : pushedEntities) {
+                entity.collisionPushed = false;
+                updateSpatialHash(entity, entity.getX(), entity.getY());
+            }
+            pushedEntities.clear();
+            Profiler.end(Profiler.Phase.SPATIAL_HASH);
+            commitPhaseEvent(rebucketEvent, "spatial hash");
+        }
+        Profiler.commit(Profiler.Phase.SPATIAL_HASH);
+    }
+    
+    /**
+     * Update every entity, re-bucketing each right after it moves.
+     *
+     * @return 0, nothing is timed
+     */
+    private long updateEntities() {
+        for (PhysicsObj entity : entities) {
+            double oldX = entity.getX();
+            double oldY = entity.getY();
+            entity.update();
+            updateSpatialHash(entity, oldX, oldY);
+        }
+        return 0;
+    }
+    
+    /**
+     * updateEntities for the profiler: two clock reads per entity around the re-bucketing.
+     *
+     * @return Nanoseconds spent re-bucketing
+     */
+    private long updateEntitiesTimed() {
+        long hashNanos = 0;
         for (PhysicsObj entity : entities) {
             double oldX = entity.getX();
             double oldY = entity.getY();
-            
             entity.update();
             
+            long hashStart = System.nanoTime();
             updateSpatialHash(entity, oldX, oldY);
+            hashNanos += System.nanoTime() - hashStart;
         }
-        
-        // Handle collisions
-        if (collisionsEnabled) {
-            handleCollisions();
+        return hashNanos;
+    }
+    
+    private void commitPhaseEvent(SimulationEvents.UpdatePhase event, String phase) {
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.tick = frameCount;
+            event.entities = entities.size();
+            event.commit();
         }
     }
     
@@ -209,18 +540,32 @@ public class SimulationWorld {
         frameCount = 0;
         framesWithoutCells = 0;
         
-        // Recreate initial scene (delegate to Main)
-        Main.createInitialScene();
+        // Recreate initial scene
+        ecosystem.populate();
         
         System.out.println("World reset complete!");
     }
     
+    /**
+     * Note an entity moved by PhysicsObj.handleCollision, so it is re-bucketed once collisions are done.
+     * Static entities never move and are skipped.
+     */
+    void recordCollisionPush(PhysicsObj entity) {
+        if (!entity.isStatic() && !entity.collisionPushed) {
+            entity.collisionPushed = true;
+            pushedEntities.add(entity);
+        }
+    }
+    
     private void handleCollisions() {
         final int MAX_ITERATIONS = 3;
         
         for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            SimulationEvents.CollisionIteration event = new SimulationEvents.CollisionIteration();
+            event.begin();
             Set<String> checkedPairs = new HashSet<>();
             boolean hadCollision = false;
+            int collisions = 0;
             
             for (PhysicsObj entity : entities) {
                 if (entity.isStatic()) continue;
@@ -238,11 +583,12 @@ public class SimulationWorld {
                         for (PhysicsObj other : nearbyEntities) {
                             if (entity == other) continue;
                             
-                            int hash1 = System.identityHashCode(entity);
-                            int hash2 = System.identityHashCode(other);
-                            String pairKey = hash1 < hash2 
-                                ? hash1 + "," + hash2
-                                : hash2 + "," + hash1;
+                            // Entity ids are unique, identity hash codes are not
+                            long id1 = entity.entityId;
+                            long id2 = other.entityId;
+                            String pairKey = id1 < id2 
+                                ? id1 + "," + id2
+                                : id2 + "," + id1;
                             
                             if (checkedPairs.contains(pairKey)) continue;
                             checkedPairs.add(pairKey);
@@ -254,34 +600,77 @@ public class SimulationWorld {
                             if (distance < minDistance) {
                                 entity.handleCollision(other);
                                 hadCollision = true;
+                                collisions++;
                             }
                         }
                     }
                 }
             }
             
+            if (event.shouldCommit()) {
+                event.tick = frameCount;
+                event.iteration = iteration;
+                event.pairsChecked = checkedPairs.size();
+                event.collisions = collisions;
+                event.commit();
+            }
+            
             if (!hadCollision) break;
         }
     }
     
     public void clear() {
+        for (PhysicsObj entity : pendingAdditions) {
+            entity.additionQueued = false;
+        }
+        for (PhysicsObj entity : pendingRemovals) {
+            entity.removalQueued = false;
+        }
+        for (PhysicsObj entity : entities) {
+            entity.worldIndex = -1;
+            entity.entityId = -1;
+            entityPool.release(entity);
+        }
+        removedCount = 0;
+        baseCheckpointRequired = true; // Too many removals to list, start a new chain
         entities.clear();
         pendingAdditions.clear();
         pendingRemovals.clear();
         entitySpatialHash.clear();
+        cellSizeIndex.clear();
         multiChannelField.clear();
+        populationMetrics.clear();
     }
     
     // Getters
     public MultiChannelGradientField getMultiChannelField() { return multiChannelField; }
     public List<PhysicsObj> getEntities() { return new ArrayList<>(entities); }
-    public Random getRandom() { return random; }
+    public SimulationRandom getRandom() { return random; }
+    public PopulationMetrics getPopulationMetrics() { return populationMetrics; }
+    public Ecosystem getEcosystem() { return ecosystem; }
+    public CellParameters getCellParameters() { return cellParameters; }
+    public EntityPool getEntityPool() { return entityPool; }
+    public SnapshotBuffer getSnapshotBuffer() { return snapshotBuffer; }
+    
+    /**
+     * Lock held by the simulation thread for the duration of a tick.
+     * Other threads must hold it to read live world state (e.g. the gradient field).
+     */
+    public ReentrantLock getTickLock() { return tickLock; }
     public double getTimeStep() { return timeStep; }
     public boolean isPaused() { return paused; }
     public int getEntityCount() { return entities.size(); }
     public int getFrameCount() { return frameCount; }
+    public int getFramesWithoutCells() { return framesWithoutCells; }
+    public long getNextEntityId() { return nextEntityId; }
+    public int getRemovedSinceCheckpointCount() { return removedCount; }
+    public long getRemovedSinceCheckpoint(int i) { return removedIds[i]; }
+    public boolean isBaseCheckpointRequired() { return baseCheckpointRequired; }
     public int getTotalWidth() { return totalWidth; }
     public int getTotalHeight() { return totalHeight; }
+    public int getCellSize() { return cellSize; }
+    public int getGridWidth() { return gridWidth; }
+    public int getGridHeight() { return gridHeight; }
     public boolean areCollisionsEnabled() { return collisionsEnabled; }
     
     // Setters
@@ -305,6 +694,30 @@ public class SimulationWorld {
         this.collisionsEnabled = enabled;
     }
     
+    /**
+     * Restore the tick counters saved in a checkpoint.
+     */
+    public void restoreFrameCounters(int frameCount, int framesWithoutCells) {
+        this.frameCount = frameCount;
+        this.framesWithoutCells = framesWithoutCells;
+    }
+    
+    public void restoreNextEntityId(long nextEntityId) {
+        this.nextEntityId = nextEntityId;
+    }
+    
+    /**
+     * Forget the changes recorded since the last checkpoint (dirty bits and removed ids).
+     * Called once the current state has been written to, or read from, a checkpoint chain.
+     */
+    public void markCheckpointed() {
+        for (PhysicsObj entity : entities) {
+            entity.checkpointDirty = false;
+        }
+        removedCount = 0;
+        baseCheckpointRequired = false;
+    }
+    
     // Utility methods
     public double getWrappedDistance(double x1, double y1, double x2, double y2) {
         double dx = Math.abs(x2 - x1);
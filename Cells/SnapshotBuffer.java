@@ -0,0 +1,55 @@
+//SNAPSHOTBUFFER.JAVA
+
+package Cells;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free triple buffer of WorldSnapshots.
+ * The simulation thread owns the back buffer, the render thread owns the front
+ * buffer, and completed snapshots are handed over through an atomic middle slot.
+ * Neither side ever waits for the other.
+ */
+public class SnapshotBuffer {
+    private final AtomicReference<WorldSnapshot> middle;
+    private WorldSnapshot back;  // Simulation thread only
+    private WorldSnapshot front; // Render thread only
+    private volatile long inspectedId = -1; // Set by the render thread, read on publish
+    
+    public SnapshotBuffer() {
+        this.back = new WorldSnapshot();
+        this.front = new WorldSnapshot();
+        this.middle = new AtomicReference<>(new WorldSnapshot());
+    }
+    
+    /**
+     * Capture the entity list into the back buffer and publish it (simulation thread).
+     */
+    public void publish(List<PhysicsObj> entities, int frame, int cellSize, int gridWidth, int gridHeight) {
+        back.capture(entities, frame, cellSize, gridWidth, gridHeight, inspectedId);
+        back.fresh = true;
+        back = middle.getAndSet(back);
+    }
+    
+    /**
+     * Ask for the details of one entity to be copied into the following snapshots, or -1 for none
+     * (render thread). Snapshots published before the request carry no details for it.
+     */
+    public void setInspectedId(long entityId) {
+        inspectedId = entityId;
+    }
+    
+    /**
+     * Get the newest published snapshot (render thread).
+     * The returned snapshot stays valid until the next call to acquire.
+     */
+    public WorldSnapshot acquire() {
+        if (middle.get().fresh) {
+            front.fresh = false;
+            front = middle.getAndSet(front);
+            front.fresh = false;
+        }
+        return front;
+    }
+}
@@ -0,0 +1,113 @@
+//SPRITERASTER.JAVA
+
+package Cells;
+
+/**
+ * Software rasterizer for small circles, writing straight into an int[] ARGB pixel buffer.
+ * Coverage masks are precomputed per screen diameter (4x4 supersampled), so stamping a
+ * sprite is a handful of integer blends instead of an antialiased Graphics2D.fillOval.
+ */
+public class SpriteRaster {
+    public static final int MAX_DIAMETER = 8; // Larger circles go through Java2D
+    
+    private static final int SUPERSAMPLE = 4;
+    
+    // coverage[d][row * d + col] = 0-255 alpha of a circle of diameter d
+    private final int[][] coverage;
+    
+    public SpriteRaster() {
+        this.coverage = new int[MAX_DIAMETER + 1][];
+        for (int d = 1; d <= MAX_DIAMETER; d++) {
+            coverage[d] = buildMask(d);
+        }
+    }
+    
+    private static int[] buildMask(int diameter) {
+        int[] mask = new int[diameter * diameter];
+        double radius = diameter / 2.0;
+        int samples = SUPERSAMPLE * SUPERSAMPLE;
+        
+        for (int row = 0; row < diameter; row++) {
+            for (int col = 0; col < diameter; col++) {
+                int inside = 0;
+                for (int sy = 0; sy < SUPERSAMPLE; sy++) {
+                    for (int sx = 0; sx < SUPERSAMPLE; sx++) {
+                        double px = col + (sx + 0.5) / SUPERSAMPLE - radius;
+                        double py = row + (sy + 0.5) / SUPERSAMPLE - radius;
+                        if (px * px + py * py <= radius * radius) {
+                            inside++;
+                        }
+                    }
+                }
+                mask[row * diameter + col] = inside * 255 / samples;
+            }
+        }
+        
+        // A 1 px entity should still be visible
+        if (diameter == 1) {
+            mask[0] = 255;
+        }
+        return mask;
+    }
+    
+    /**
+     * Stamp a filled circle with its top-left corner at (left, top), clipped to the buffer.
+     *
+     * @param pixels ARGB pixel data, row-major
+     * @param width Buffer width in pixels
+     * @param height Buffer height in pixels
+     * @param diameter Circle diameter in pixels, 1 to MAX_DIAMETER
+     * @param argb Fill color
+     */
+    public void stamp(int[] pixels, int width, int height, int left, int top, int diameter, int argb) {
+        stamp(pixels, width, left, top, diameter, argb, 0, 0, width, height);
+    }
+    
+    /**
+     * Stamp a filled circle, clipped to the rectangle [clipLeft, clipRight) x [clipTop, clipBottom),
+     * which must lie inside the buffer.
+     */
+    public void stamp(int[] pixels, int width, int left, int top, int diameter, int argb,
+                      int clipLeft, int clipTop, int clipRight, int clipBottom) {
+        int[] mask = coverage[diameter];
+        int srcAlpha = argb >>> 24;
+        int rgb = argb & 0xFFFFFF;
+        
+        int rowStart = Math.max(0, clipTop - top);
+        int rowEnd = Math.min(diameter, clipBottom - top);
+        int colStart = Math.max(0, clipLeft - left);
+        int colEnd = Math.min(diameter, clipRight - left);
+        
+        for (int row = rowStart; row < rowEnd; row++) {
+            int maskRow = row * diameter;
+            int pixelRow = (top + row) * width + left;
+            
+            for (int col = colStart; col < colEnd; col++) {
+                int alpha = srcAlpha == 255 ? mask[maskRow + col] : mask[maskRow + col] * srcAlpha / 255;
+                if (alpha == 0) continue;
+                
+                int p = pixelRow + col;
+                pixels[p] = alpha == 255 ? (0xFF000000 | rgb) : blend(pixels[p], rgb, alpha);
+            }
+        }
+    }
+    
+    /**
+     * Source-over blend of an opaque RGB color at the given alpha onto an ARGB pixel.
+     */
+    static int blend(int dst, int rgb, int alpha) {
+        int inverse = 255 - alpha;
+        
+        int dstA = dst >>> 24;
+        int dstR = (dst >> 16) & 0xFF;
+        int dstG = (dst >> 8) & 0xFF;
+        int dstB = dst & 0xFF;
+        
+        int outA = alpha + dstA * inverse / 255;
+        int outR = (((rgb >> 16) & 0xFF) * alpha + dstR * inverse) / 255;
+        int outG = (((rgb >> 8) & 0xFF) * alpha + dstG * inverse) / 255;
+        int outB = ((rgb & 0xFF) * alpha + dstB * inverse) / 255;
+        
+        return (outA << 24) | (outR << 16) | (outG << 8) | outB;
+    }
+}
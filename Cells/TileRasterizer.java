@@ -0,0 +1,101 @@
+//TILERASTERIZER.JAVA
+
+package Cells;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads per-tile rasterization across worker threads.
+ * Workers and the calling thread claim tiles one at a time from a shared counter until
+ * all are done; the call returns once every tile has been drawn. Each tile must only
+ * write its own pixels, so no locking is needed beyond the hand-off itself.
+ */
+public class TileRasterizer {
+    /**
+     * Draws a single tile. Called concurrently for different tiles.
+     */
+    public interface TileJob {
+        void drawTile(int tile);
+    }
+    
+    private final int workerCount;
+    private final ExecutorService workers;
+    
+    /**
+     * @param workerCount Background threads to use; the calling thread always helps, so 0 runs inline
+     */
+    public TileRasterizer(int workerCount) {
+        this.workerCount = Math.max(0, workerCount);
+        
+        if (this.workerCount == 0) {
+            this.workers = null;
+            return;
+        }
+        
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "TileRasterizer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Draw tiles 0 .. tileCount - 1, blocking until all of them are finished.
+     */
+    public void run(int tileCount, TileJob job) {
+        if (workers == null || tileCount < 2) {
+            for (int tile = 0; tile < tileCount; tile++) {
+                job.drawTile(tile);
+            }
+            return;
+        }
+        
+        AtomicInteger nextTile = new AtomicInteger();
+        int helpers = Math.min(workerCount, tileCount - 1);
+        CountDownLatch done = new CountDownLatch(helpers);
+        Throwable[] failure = new Throwable[1];
+        
+        Runnable worker = () -> {
+            try {
+                drawTiles(nextTile, tileCount, job);
+            } catch (Throwable t) {
+                synchronized (failure) {
+                    failure[0] = t;
+                }
+            } finally {
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < helpers; i++) {
+            workers.execute(worker);
+        }
+        
+        drawTiles(nextTile, tileCount, job);
+        
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw new RuntimeException("Tile rasterization failed", failure[0]);
+            }
+        }
+    }
+    
+    private static void drawTiles(AtomicInteger nextTile, int tileCount, TileJob job) {
+        for (int tile = nextTile.getAndIncrement(); tile < tileCount; tile = nextTile.getAndIncrement()) {
+            job.drawTile(tile);
+        }
+    }
+    
+    public int getWorkerCount() {
+        return workerCount;
+    }
+}
@@ -0,0 +1,458 @@
+//WORLDCHECKPOINT.JAVA
+
+package Cells;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary save file for a SimulationWorld, either a full base snapshot or a delta against the previous file of its chain.
+ * Layout, big-endian:
+ *   header   magic, format version, type, world dimensions, tick counters, Main's cycle state, chain position, time step and flags, RNG state
+ *   removed  ids of the entities removed since the previous file (deltas only)
+ *   columns  one array per physics field, entityCount entries each
+ *   cells    genome and state record of every Cell, in entity order
+ *   food     state record of every Food, in entity order
+ * A base holds every entity; a delta holds only the entities added or changed since the previous file
+ * (those with their checkpointDirty bit set). See CheckpointChain.
+ * The file is sized up front and filled through a memory-mapped buffer, so saving and
+ * loading are plain copies of each entity's fields with no per-entity I/O calls.
+ * Callers must hold the world's tick lock.
+ */
+public class WorldCheckpoint {
+    private static final int MAGIC = 0x43454C53; // "CELS"
+    public static final int VERSION = 3;
+    
+    public static final int TYPE_BASE = 0;
+    public static final int TYPE_DELTA = 1;
+    
+    private static final int HEADER_BYTES =
+        4 * 10     // magic, version, type, cellSize, gridWidth, gridHeight, frameCount, framesWithoutCells, cycles, currentCycle
+        + 8 + 4    // chainStamp, sequence
+        + 8 + 4 + 4 // timeStep, collisionsEnabled, paused
+        + 8 + 8    // RNG state, pending Gaussian
+        + 8        // nextEntityId
+        + 4 * 4;   // entity, cell, food and removed counts
+    
+    // Physics columns: id (long); x, y, vx, vy, ax, ay, mass, restitution, damping, max velocity (double); size, argb (int); kind, static (byte)
+    // Acceleration is saved because forces applied in onUpdate carry over into the next tick
+    private static final int LONG_COLUMNS = 1;
+    private static final int DOUBLE_COLUMNS = 10;
+    private static final int INT_COLUMNS = 2;
+    private static final int BYTE_COLUMNS = 2;
+    private static final int COLUMN_BYTES = LONG_COLUMNS * 8 + DOUBLE_COLUMNS * 8 + INT_COLUMNS * 4 + BYTE_COLUMNS;
+    
+    private static final int CELL_RECORD_BYTES = Cell.GENOME_LENGTH * 8 + Cell.STATE_BYTES;
+    
+    /**
+     * Header fields of a checkpoint file, as read by readHeader.
+     */
+    public static class Header {
+        public final int type;
+        public final long chainStamp;
+        public final int sequence;
+        public final int frameCount;
+        public final int entityCount;
+        public final int removedCount;
+        
+        Header(int type, long chainStamp, int sequence, int frameCount, int entityCount, int removedCount) {
+            this.type = type;
+            this.chainStamp = chainStamp;
+            this.sequence = sequence;
+            this.frameCount = frameCount;
+            this.entityCount = entityCount;
+            this.removedCount = removedCount;
+        }
+    }
+    
+    /**
+     * Write the whole world to a file, replacing it if it exists. Pending changes are committed first.
+     *
+     * @return Size of the file in bytes
+     */
+    public static long save(SimulationWorld world, File file) throws IOException {
+        return save(world, file, 0);
+    }
+    
+    /**
+     * Write the whole world as the base of the chain identified by chainStamp.
+     * Does not reset the world's change tracking; CheckpointChain does that once the chain is written.
+     *
+     * @return Size of the file in bytes
+     */
+    public static long save(SimulationWorld world, File file, long chainStamp) throws IOException {
+        return write(world, file, TYPE_BASE, chainStamp, 0);
+    }
+    
+    /**
+     * Write only what changed since the last checkpoint: the entities added or changed and the ids removed.
+     * The delta applies on top of the file with the previous sequence number in the same chain.
+     *
+     * @return Size of the file in bytes
+     */
+    public static long saveDelta(SimulationWorld world, File file, long chainStamp, int sequence) throws IOException {
+        return write(world, file, TYPE_DELTA, chainStamp, sequence);
+    }
+    
+    private static long write(SimulationWorld world, File file, int type, long chainStamp, int sequence) throws IOException {
+        world.processPendingChanges();
+        List<PhysicsObj> entities = world.getEntities();
+        boolean delta = type == TYPE_DELTA;
+        
+        // Only Cells and Food can be rebuilt on load
+        int cellCount = 0;
+        int foodCount = 0;
+        int skipped = 0;
+        for (PhysicsObj entity : entities) {
+            if (delta && !entity.checkpointDirty) {
+                continue;
+            }
+            if (entity instanceof Cell) {
+                cellCount++;
+            } else if (entity instanceof Food) {
+                foodCount++;
+            } else {
+                skipped++;
+            }
+        }
+        int count = cellCount + foodCount;
+        if (skipped > 0) {
+            System.out.println("Checkpoint skips " + skipped + " entities of other types");
+        }
+        int removedCount = delta ? world.getRemovedSinceCheckpointCount() : 0;
+        
+        long size = expectedSize(count, cellCount, foodCount, removedCount);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("World too large for a single checkpoint: " + size + " bytes");
+        }
+        
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            raf.setLength(size);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            
+            writeHeader(buffer, world, type, chainStamp, sequence, count, cellCount, foodCount, removedCount);
+            for (int i = 0; i < removedCount; i++) {
+                buffer.putLong(world.getRemovedSinceCheckpoint(i));
+            }
+            
+            int columns = HEADER_BYTES + removedCount * 8;
+            ByteBuffer cellOut = buffer.duplicate();
+            cellOut.position(columns + count * COLUMN_BYTES);
+            ByteBuffer foodOut = buffer.duplicate();
+            foodOut.position(columns + count * COLUMN_BYTES + cellCount * CELL_RECORD_BYTES);
+            
+            int i = 0;
+            for (PhysicsObj entity : entities) {
+                if (delta && !entity.checkpointDirty) {
+                    continue;
+                }
+                
+                byte kind;
+                if (entity instanceof Cell) {
+                    Cell cell = (Cell) entity;
+                    cell.exportGenome(cellOut);
+                    cell.writeState(cellOut);
+                    kind = WorldSnapshot.KIND_CELL;
+                } else if (entity instanceof Food) {
+                    ((Food) entity).writeState(foodOut);
+                    kind = WorldSnapshot.KIND_FOOD;
+                } else {
+                    continue;
+                }
+                
+                writeColumns(buffer, columns, count, i, entity, kind);
+                i++;
+            }
+            
+            buffer.force();
+        }
+        return size;
+    }
+    
+    /**
+     * Replace the world's contents with a base checkpoint written by save.
+     * The world must have the same dimensions the checkpoint was saved with.
+     *
+     * @return Number of entities loaded
+     */
+    public static int load(SimulationWorld world, File file) throws IOException {
+        return read(world, file, TYPE_BASE);
+    }
+    
+    /**
+     * Apply a delta written by saveDelta to a world holding the state it was taken against
+     * (its chain's base plus every earlier delta).
+     *
+     * @return Number of entities added or updated
+     */
+    public static int applyDelta(SimulationWorld world, File file) throws IOException {
+        return read(world, file, TYPE_DELTA);
+    }
+    
+    /**
+     * Read just the header of a checkpoint, to check where it belongs in a chain.
+     */
+    public static Header readHeader(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_BYTES));
+            return parseHeader(buffer, size, file);
+        }
+    }
+    
+    private static Header parseHeader(ByteBuffer buffer, long size, File file) throws IOException {
+        if (size < HEADER_BYTES || buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a world checkpoint: " + file);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + " (expected " + VERSION + ")");
+        }
+        int type = buffer.getInt(8);
+        int frameCount = buffer.getInt(24);
+        long chainStamp = buffer.getLong(40);
+        int sequence = buffer.getInt(48);
+        int counts = HEADER_BYTES - 4 * 4;
+        return new Header(type, chainStamp, sequence, frameCount, buffer.getInt(counts), buffer.getInt(counts + 12));
+    }
+    
+    private static int read(SimulationWorld world, File file, int expectedType) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a world checkpoint: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            
+            Header header = parseHeader(buffer, size, file);
+            if (header.type != expectedType) {
+                throw new IOException(file + " is a " + (header.type == TYPE_BASE ? "base" : "delta")
+                    + " checkpoint, expected a " + (expectedType == TYPE_BASE ? "base" : "delta"));
+            }
+            buffer.position(12);
+            
+            int cellSize = buffer.getInt();
+            int gridWidth = buffer.getInt();
+            int gridHeight = buffer.getInt();
+            if (cellSize != world.getCellSize() || gridWidth != world.getGridWidth() || gridHeight != world.getGridHeight()) {
+                throw new IOException(String.format("Checkpoint is for a %dx%d grid of %d, world is %dx%d of %d",
+                    gridWidth, gridHeight, cellSize, world.getGridWidth(), world.getGridHeight(), world.getCellSize()));
+            }
+            
+            int frameCount = buffer.getInt();
+            int framesWithoutCells = buffer.getInt();
+            int cycles = buffer.getInt();
+            int currentCycle = buffer.getInt();
+            buffer.getLong(); // chainStamp and sequence, already in the header
+            buffer.getInt();
+            double timeStep = buffer.getDouble();
+            boolean collisionsEnabled = buffer.getInt() != 0;
+            boolean paused = buffer.getInt() != 0;
+            long rngState = buffer.getLong();
+            double rngGaussian = buffer.getDouble();
+            long nextEntityId = buffer.getLong();
+            int count = buffer.getInt();
+            int cellCount = buffer.getInt();
+            int foodCount = buffer.getInt();
+            int removedCount = buffer.getInt();
+            
+            if (count != cellCount + foodCount || removedCount < 0
+                    || size != expectedSize(count, cellCount, foodCount, removedCount)) {
+                throw new IOException("Checkpoint is truncated or corrupt: " + file);
+            }
+            
+            // Existing entities by id, for a delta to update in place
+            Map<Long, PhysicsObj> byId = null;
+            if (expectedType == TYPE_BASE) {
+                world.clear();
+            } else {
+                world.processPendingChanges();
+                byId = new HashMap<>();
+                for (PhysicsObj entity : world.getEntities()) {
+                    byId.put(entity.entityId, entity);
+                }
+                
+                // Removals first; compaction keeps the survivors in order
+                for (int i = 0; i < removedCount; i++) {
+                    PhysicsObj removed = byId.remove(buffer.getLong());
+                    if (removed != null) {
+                        world.queueRemoval(removed);
+                    }
+                }
+                world.processPendingChanges();
+            }
+            
+            world.restoreFrameCounters(frameCount, framesWithoutCells);
+            world.setTimeStep(timeStep);
+            world.setCollisionsEnabled(collisionsEnabled);
+            world.setPaused(paused);
+            world.getEcosystem().restoreCycleState(cycles, currentCycle);
+            
+            int columns = HEADER_BYTES + removedCount * 8;
+            ByteBuffer cellIn = buffer.duplicate();
+            cellIn.position(columns + count * COLUMN_BYTES);
+            ByteBuffer foodIn = buffer.duplicate();
+            foodIn.position(columns + count * COLUMN_BYTES + cellCount * CELL_RECORD_BYTES);
+            
+            EntityPool pool = world.getEntityPool();
+            List<PhysicsObj> added = new ArrayList<>(byId == null ? count : 0);
+            int doubleColumns = columns + count * LONG_COLUMNS * 8;
+            int kindColumn = doubleColumns + count * (DOUBLE_COLUMNS * 8 + INT_COLUMNS * 4);
+            for (int i = 0; i < count; i++) {
+                long id = buffer.getLong(columns + i * 8);
+                double x = buffer.getDouble(doubleColumns + i * 8);
+                double y = buffer.getDouble(doubleColumns + (count + i) * 8);
+                boolean isCell = buffer.get(kindColumn + i) == WorldSnapshot.KIND_CELL;
+                
+                PhysicsObj existing = byId != null ? byId.get(id) : null;
+                if (existing != null) {
+                    // Changed since the previous file: overwrite in place and move it to its new bucket
+                    double oldX = existing.getX();
+                    double oldY = existing.getY();
+                    world.getPopulationMetrics().untrack(existing);
+                    if (isCell) {
+                        ((Cell) existing).importGenome(cellIn);
+                        readColumns(buffer, columns, count, i, existing);
+                        ((Cell) existing).readState(cellIn);
+                    } else {
+                        readColumns(buffer, columns, count, i, existing);
+                        ((Food) existing).readState(foodIn);
+                    }
+                    world.getPopulationMetrics().track(existing);
+                    world.relocate(existing, oldX, oldY);
+                    continue;
+                }
+                
+                // Ids are handed out in ascending order, so appending new entities keeps the saved order
+                if (isCell) {
+                    Cell cell = pool.obtainCell(x, y);
+                    cell.importGenome(cellIn);
+                    readColumns(buffer, columns, count, i, cell);
+                    cell.readState(cellIn);
+                    cell.entityId = id;
+                    added.add(cell);
+                } else {
+                    Food food = pool.obtainDeadMatter(x, y, 0); // Zeroed chemistry, overwritten by readState
+                    readColumns(buffer, columns, count, i, food);
+                    food.readState(foodIn);
+                    food.entityId = id;
+                    added.add(food);
+                }
+            }
+            world.addEntities(added);
+            world.restoreNextEntityId(nextEntityId);
+            
+            // Last, since rebuilding cells draws random traits that readState then overwrites
+            world.getRandom().restoreState(rngState, rngGaussian);
+            return count;
+        }
+    }
+    
+    private static long expectedSize(int count, int cellCount, int foodCount, int removedCount) {
+        return HEADER_BYTES + (long) removedCount * 8 + (long) count * COLUMN_BYTES
+            + (long) cellCount * CELL_RECORD_BYTES + (long) foodCount * Food.STATE_BYTES;
+    }
+    
+    private static void writeHeader(ByteBuffer buffer, SimulationWorld world, int type, long chainStamp, int sequence,
+                                    int count, int cellCount, int foodCount, int removedCount) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(type);
+        buffer.putInt(world.getCellSize());
+        buffer.putInt(world.getGridWidth());
+        buffer.putInt(world.getGridHeight());
+        buffer.putInt(world.getFrameCount());
+        buffer.putInt(world.getFramesWithoutCells());
+        buffer.putInt(world.getEcosystem().getCycles());
+        buffer.putInt(world.getEcosystem().getCurrentCycle());
+        buffer.putLong(chainStamp);
+        buffer.putInt(sequence);
+        buffer.putDouble(world.getTimeStep());
+        buffer.putInt(world.areCollisionsEnabled() ? 1 : 0);
+        buffer.putInt(world.isPaused() ? 1 : 0);
+        buffer.putLong(world.getRandom().getState());
+        buffer.putDouble(world.getRandom().getPendingGaussian());
+        buffer.putLong(world.getNextEntityId());
+        buffer.putInt(count);
+        buffer.putInt(cellCount);
+        buffer.putInt(foodCount);
+        buffer.putInt(removedCount);
+    }
+    
+    /**
+     * Write entity i's physics fields into the column arrays starting at base.
+     */
+    private static void writeColumns(ByteBuffer buffer, int base, int count, int i, PhysicsObj entity, byte kind) {
+        buffer.putLong(base + i * 8, entity.entityId);
+        
+        base += count * LONG_COLUMNS * 8;
+        int doubles = base + i * 8;
+        int stride = count * 8;
+        buffer.putDouble(doubles, entity.getX());
+        buffer.putDouble(doubles + stride, entity.getY());
+        buffer.putDouble(doubles + stride * 2, entity.getVelocityX());
+        buffer.putDouble(doubles + stride * 3, entity.getVelocityY());
+        buffer.putDouble(doubles + stride * 4, entity.getAccelerationX());
+        buffer.putDouble(doubles + stride * 5, entity.getAccelerationY());
+        buffer.putDouble(doubles + stride * 6, entity.getMass());
+        buffer.putDouble(doubles + stride * 7, entity.getRestitution());
+        buffer.putDouble(doubles + stride * 8, entity.dampingFactor);
+        buffer.putDouble(doubles + stride * 9, entity.maxVelocity);
+        
+        int ints = base + count * DOUBLE_COLUMNS * 8 + i * 4;
+        buffer.putInt(ints, entity.getSize());
+        buffer.putInt(ints + count * 4, entity.getColor().getRGB());
+        
+        int bytes = base + count * (DOUBLE_COLUMNS * 8 + INT_COLUMNS * 4) + i;
+        buffer.put(bytes, kind);
+        buffer.put(bytes + count, (byte) (entity.isStatic() ? 1 : 0));
+    }
+    
+    /**
+     * Restore entity i's physics fields from the column arrays starting at base.
+     */
+    private static void readColumns(ByteBuffer buffer, int base, int count, int i, PhysicsObj entity) {
+        base += count * LONG_COLUMNS * 8;
+        int doubles = base + i * 8;
+        int stride = count * 8;
+        entity.setPosition(buffer.getDouble(doubles), buffer.getDouble(doubles + stride));
+        entity.setVelocity(buffer.getDouble(doubles + stride * 2), buffer.getDouble(doubles + stride * 3));
+        entity.setAcceleration(buffer.getDouble(doubles + stride * 4), buffer.getDouble(doubles + stride * 5));
+        entity.setMass(buffer.getDouble(doubles + stride * 6));
+        entity.setRestitution(buffer.getDouble(doubles + stride * 7));
+        entity.dampingFactor = buffer.getDouble(doubles + stride * 8);
+        entity.maxVelocity = buffer.getDouble(doubles + stride * 9);
+        
+        int ints = base + count * DOUBLE_COLUMNS * 8 + i * 4;
+        entity.setSize(buffer.getInt(ints));
+        entity.setColor(restoreColor(buffer.getInt(ints + count * 4)));
+        
+        int bytes = base + count * (DOUBLE_COLUMNS * 8 + INT_COLUMNS * 4) + i;
+        entity.setStatic(buffer.get(bytes + count) != 0);
+    }
+    
+    /**
+     * Shared palette color when the saved one is in it, so loading doesn't allocate a Color per entity.
+     */
+    private static Color restoreColor(int argb) {
+        Color color = ColorPalette.get((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF);
+        return color.getRGB() == argb ? color : new Color(argb, true);
+    }
+}
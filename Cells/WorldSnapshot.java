@@ -0,0 +1,248 @@
+//WORLDSNAPSHOT.JAVA
+
+package Cells;
+
+/**
+ * Immutable-once-published copy of the render-relevant entity state.
+ * Stored as compact primitive arrays so the renderer never touches live entities
+ * while the simulation thread is mutating them.
+ */
+public class WorldSnapshot {
+    public static final byte KIND_FOOD = 0;
+    public static final byte KIND_CELL = 1;
+    public static final byte KIND_OTHER = 2;
+    
+    public int count;
+    public int frame;
+    // Entity ids, ascending: the world keeps its entity list in id order (see SimulationWorld.assignEntityId)
+    public long[] id;
+    public float[] x;
+    public float[] y;
+    public int[] size;
+    public float[] mass;
+    public int[] argb;
+    public byte[] kind;
+    
+    // Details of the entity the render thread asked to inspect (see SnapshotBuffer.setInspectedId),
+    // copied at capture for the tooltip; inspectedIndex is -1 when that entity is not in this snapshot
+    public int inspectedIndex = -1;
+    public double inspectedVelocityX;
+    public double inspectedVelocityY;
+    public double inspectedEnergy;
+    public int inspectedAge;
+    public double inspectedRedEfficiency;
+    public double inspectedGreenEfficiency;
+    public double inspectedBlueEfficiency;
+    public double inspectedMaxSpeed;
+    public double inspectedSenseRange;
+    public boolean inspectedPredator;
+    public double inspectedNutrition;
+    public boolean inspectedWaste;
+    public final double[] inspectedChemistry = new double[ChemicalSignature.DIMENSIONS];
+    
+    // Spatial index over this snapshot, on the world's grid:
+    // entities of bucket b are order[bucketStart[b]] .. order[bucketStart[b + 1] - 1]
+    public int cellSize;
+    public int gridWidth;
+    public int gridHeight;
+    public int[] bucketStart;
+    public int[] order;
+    // Average opaque color of each non-empty bucket, for the zoomed-out density view.
+    // Built by the reader on first use (see bucketColors), since only that view needs it.
+    private int[] bucketArgb;
+    private boolean bucketColorsBuilt;
+    private int[] bucketOf;
+    
+    // Set by the writer on publish, cleared by the reader on acquire
+    boolean fresh;
+    
+    public WorldSnapshot() {
+        allocate(1024);
+    }
+    
+    /**
+     * Refill this snapshot from the live entity list (simulation thread only).
+     * The entity with id inspectId, if present, also gets its details copied; pass -1 for none.
+     */
+    void capture(java.util.List<PhysicsObj> source, int frame, int cellSize, int gridWidth, int gridHeight, long inspectId) {
+        int n = source.size();
+        if (n > x.length) {
+            allocate(Math.max(n, x.length + x.length / 2));
+        }
+        
+        for (int i = 0; i < n; i++) {
+            PhysicsObj entity = source.get(i);
+            id[i] = entity.entityId;
+            x[i] = (float) entity.getX();
+            y[i] = (float) entity.getY();
+            size[i] = entity.getSize();
+            mass[i] = (float) entity.getMass();
+            argb[i] = entity.getColor().getRGB();
+            kind[i] = entity instanceof Food ? KIND_FOOD
+                    : entity instanceof Cell ? KIND_CELL
+                    : KIND_OTHER;
+        }
+        
+        this.count = n;
+        this.frame = frame;
+        
+        inspectedIndex = inspectId >= 0 ? indexOf(inspectId) : -1;
+        if (inspectedIndex >= 0) {
+            inspect(source.get(inspectedIndex));
+        }
+        
+        buildBucketIndex(cellSize, gridWidth, gridHeight);
+    }
+    
+    /**
+     * Copy the tooltip details of one entity.
+     */
+    private void inspect(PhysicsObj entity) {
+        inspectedVelocityX = entity.getVelocityX();
+        inspectedVelocityY = entity.getVelocityY();
+        if (entity instanceof Cell) {
+            Cell cell = (Cell) entity;
+            inspectedEnergy = cell.getEnergy();
+            inspectedAge = cell.getAge();
+            inspectedRedEfficiency = cell.getRedEfficiency();
+            inspectedGreenEfficiency = cell.getGreenEfficiency();
+            inspectedBlueEfficiency = cell.getBlueEfficiency();
+            inspectedMaxSpeed = cell.getMaxSpeed();
+            inspectedSenseRange = cell.getSenseRange();
+            inspectedPredator = cell.isPredator();
+        } else if (entity instanceof Food) {
+            Food food = (Food) entity;
+            inspectedNutrition = food.getNutritionalValue();
+            inspectedWaste = food.isWaste();
+            ChemicalSignature chemistry = food.getChemistry();
+            for (int d = 0; d < ChemicalSignature.DIMENSIONS; d++) {
+                inspectedChemistry[d] = chemistry.get(d);
+            }
+        }
+    }
+    
+    /**
+     * Counting sort of entity indices by grid bucket.
+     */
+    private void buildBucketIndex(int cellSize, int gridWidth, int gridHeight) {
+        this.cellSize = cellSize;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        
+        int buckets = gridWidth * gridHeight;
+        if (bucketStart == null || bucketStart.length != buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        } else {
+            java.util.Arrays.fill(bucketStart, 0);
+        }
+        
+        for (int i = 0; i < count; i++) {
+            int gx = ((int) (x[i] / cellSize) % gridWidth + gridWidth) % gridWidth;
+            int gy = ((int) (y[i] / cellSize) % gridHeight + gridHeight) % gridHeight;
+            int bucket = gx + gy * gridWidth;
+            bucketOf[i] = bucket;
+            bucketStart[bucket]++;
+        }
+        
+        // Inclusive prefix sum gives bucket ends; filling backwards turns them into starts
+        for (int b = 1; b < buckets; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            order[--bucketStart[bucketOf[i]]] = i;
+        }
+        bucketStart[buckets] = count;
+        bucketColorsBuilt = false;
+    }
+    
+    /**
+     * Average color of each bucket (0 for empty ones), computed on the first call after a capture.
+     * Call from the thread that acquired this snapshot.
+     */
+    public int[] bucketColors() {
+        if (!bucketColorsBuilt) {
+            int buckets = gridWidth * gridHeight;
+            if (bucketArgb == null || bucketArgb.length != buckets) {
+                bucketArgb = new int[buckets];
+            }
+            buildBucketColors(buckets);
+            bucketColorsBuilt = true;
+        }
+        return bucketArgb;
+    }
+    
+    /**
+     * Average the entity colors of each bucket, walking the buckets in sorted order.
+     */
+    private void buildBucketColors(int buckets) {
+        for (int b = 0; b < buckets; b++) {
+            int start = bucketStart[b];
+            int end = bucketStart[b + 1];
+            if (start == end) {
+                bucketArgb[b] = 0;
+                continue;
+            }
+            
+            int red = 0;
+            int green = 0;
+            int blue = 0;
+            for (int k = start; k < end; k++) {
+                int color = argb[order[k]];
+                red += (color >> 16) & 0xFF;
+                green += (color >> 8) & 0xFF;
+                blue += color & 0xFF;
+            }
+            
+            int n = end - start;
+            bucketArgb[b] = 0xFF000000 | (red / n) << 16 | (green / n) << 8 | (blue / n);
+        }
+    }
+    
+    /**
+     * Index of the entity with the given id in this snapshot, or -1 if it was not in the world.
+     * Ids are never reused, so a removed entity stays missing even after the pool recycles its object.
+     */
+    public int indexOf(long entityId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = id[mid];
+            if (midId < entityId) {
+                low = mid + 1;
+            } else if (midId > entityId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Number of entities in a bucket.
+     */
+    public int bucketCount(int bucket) {
+        return bucketStart[bucket + 1] - bucketStart[bucket];
+    }
+    
+    /**
+     * Bucket index for (wrapped) grid coordinates.
+     */
+    public int bucket(int gridX, int gridY) {
+        return Math.floorMod(gridX, gridWidth) + Math.floorMod(gridY, gridHeight) * gridWidth;
+    }
+    
+    private void allocate(int capacity) {
+        id = new long[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        size = new int[capacity];
+        mass = new float[capacity];
+        argb = new int[capacity];
+        kind = new byte[capacity];
+        order = new int[capacity];
+        bucketOf = new int[capacity];
+        count = 0;
+    }
+}
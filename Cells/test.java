@@ -6,6 +6,7 @@ import java.util.ArrayList;
 
 public class test {
     public static void main(String[] args) {
+        SimulationWorld.initialize(50, 10, 10); // evolve draws from the world's RNG
 
         ArrayList<Double> numbers = new ArrayList<>();
         for (int i = 0; i < 100; i++) {